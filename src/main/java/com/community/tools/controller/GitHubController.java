@@ -5,8 +5,8 @@ import static org.springframework.http.ResponseEntity.ok;
 import com.community.tools.model.EventData;
 import com.community.tools.service.CountingCompletedTasksService;
 import com.community.tools.service.github.GitHubService;
+import com.community.tools.service.github.PullRequestPage;
 import com.community.tools.service.slack.SlackService;
-import java.io.IOException;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -15,12 +15,14 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import lombok.RequiredArgsConstructor;
+import org.kohsuke.github.GHIssueState;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RequiredArgsConstructor
 @RestController
@@ -45,22 +47,47 @@ public class GitHubController {
    * Endpoint /pull_request/{state}.
    * @param state boolean variable, that shows pull request status. True - open, False - closed
    * @return  ResponseEntity with Status.OK and body.
-   Body contains List of Map(user,title) with this status
+   Body contains List of Map(user, titles of all pulls) with this status.
+   For pages of pull requests with labels use /pull_requests
    */
   @GetMapping(value = "/pull_request/{state}", produces = MediaType.APPLICATION_JSON_VALUE)
-  public ResponseEntity<List<Map<String, String>>> getPullRequests(@PathVariable boolean state) {
-    Map<String, String> userPullRequest = gitHubService.getPullRequests(state);
-    List<Map<String, String>> list = new ArrayList<>();
+  public ResponseEntity<List<Map<String, List<String>>>> getPullRequests(
+      @PathVariable boolean state) {
+    Map<String, List<String>> userPullRequest = gitHubService.getPullRequests(state);
+    List<Map<String, List<String>>> list = new ArrayList<>();
     list.add(userPullRequest);
     return ok().body(list);
   }
 
   @GetMapping(value = "/pull_request/сlosedReq", produces = MediaType.APPLICATION_JSON_VALUE)
-  public ResponseEntity<Map<String, List<String>>> getPullRequests() throws IOException {
+  public ResponseEntity<Map<String, List<String>>> getPullRequests() {
     Map<String, List<String>> map = completedTasksService.getCountedCompletedTasks();
     return ok().body(map);
   }
 
+  /**
+   * Endpoint /pull_requests.
+   * @param state state of pull requests: OPEN, CLOSED or ALL
+   * @param cursor nextCursor of the previous page, none for the first page
+   * @param limit number of pull requests on the page, from 1 to 100
+   * @return ResponseEntity with Status.OK and body, streamed from GitHub.
+   Body contains items with number, author, title, labels and nextCursor, null on the last page.
+   Status.BAD_REQUEST if cursor or limit is invalid
+   */
+  @GetMapping(value = "/pull_requests", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> listPullRequests(
+      @RequestParam(name = "state", defaultValue = "ALL") GHIssueState state,
+      @RequestParam(name = "cursor", required = false) String cursor,
+      @RequestParam(name = "limit", defaultValue = "30") int limit) {
+    PullRequestPage page;
+    try {
+      page = gitHubService.openPullRequests(state, cursor, limit);
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().build();
+    }
+    return ok().body(page::writeTo);
+  }
+
   /**
    * Endpount /event.
    * @param startDate startDate
@@ -3,6 +3,7 @@ package com.community.tools.controller;
 import static org.springframework.http.ResponseEntity.ok;
 
 import com.community.tools.service.StateMachineService;
+import com.community.tools.service.UserLaneExecutor;
 import com.community.tools.service.github.GitHubService;
 import com.community.tools.service.slack.SlackService;
 import com.github.seratch.jslack.api.model.User;
@@ -13,11 +14,13 @@ import com.google.gson.Gson;
 
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
 import lombok.RequiredArgsConstructor;
 import org.kohsuke.github.GHPerson;
 import org.kohsuke.github.GHUser;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 
@@ -36,6 +39,7 @@ public class GitSlackUsersController {
   private final StateMachineService stateMachineService;
   private final SlackService slackService;
   private final GitHubService gitService;
+  private final UserLaneExecutor userLanes;
 
   /**
    * Endpoint /git. Method GET.
@@ -67,17 +71,29 @@ public class GitSlackUsersController {
   }
 
   /**
-   * Endpoint /sack/action. Method POST
+   * Endpoint /sack/action. Method POST. The action is handled on the lane of the user.
    * @param payload JSON of BlockActionPayload
-   * @throws Exception Exception
+   * @return ResponseEntity with Status.OK, or SERVICE_UNAVAILABLE if the lane is full
    */
   @RequestMapping(value = "/slack/action", method = RequestMethod.POST)
-  public void action(@RequestParam(name = "payload") String payload) throws Exception {
+  public ResponseEntity<Void> action(@RequestParam(name = "payload") String payload) {
 
     Gson snakeCase = GsonFactory.createSnakeCase();
     BlockActionPayload pl = snakeCase.fromJson(payload, BlockActionPayload.class);
 
-    stateMachineService.checkActionsFromButton(pl.getActions()
-            .get(0).getValue(),pl.getUser().getId());
+    String userId = pl.getUser().getId();
+    try {
+      userLanes.execute(userId, () -> {
+        try {
+          stateMachineService.checkActionsFromButton(pl.getActions()
+              .get(0).getValue(), userId);
+        } catch (Exception e) {
+          throw new RuntimeException(e);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+    }
+    return ok().build();
   }
 }
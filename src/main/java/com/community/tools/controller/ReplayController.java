@@ -0,0 +1,70 @@
+package com.community.tools.controller;
+
+import static org.springframework.http.ResponseEntity.ok;
+
+import com.community.tools.service.github.GitHookReplayService;
+import com.community.tools.service.github.GitHookReplayService.Mode;
+import com.community.tools.service.github.GitHubHookServlet;
+import com.community.tools.service.github.ReplayReport;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Set;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RequiredArgsConstructor
+@RestController
+public class ReplayController {
+
+  @Value("${admin.token}")
+  private String adminToken;
+
+  private final GitHookReplayService replayService;
+
+  /**
+   * Endpoint /admin/replay.
+   * @param token value of X-Admin-Token header, must match admin.token
+   * @param startDate start date, inclusive
+   * @param endDate end date, exclusive
+   * @param mode DRY_RUN or APPLY
+   * @param handlers names of handlers to run, all replayable handlers by default
+   * @return ResponseEntity with Status.OK and report of replay.
+   Status.FORBIDDEN if token is wrong or admin.token is not set.
+   Status.BAD_REQUEST if a handler can not be replayed
+   * @throws ParseException error while parsing Date from String
+   */
+  @PostMapping(value = "/admin/replay", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<ReplayReport> replay(
+      @RequestHeader(name = "X-Admin-Token", required = false) String token,
+      @RequestParam(name = "start") String startDate,
+      @RequestParam(name = "end") String endDate,
+      @RequestParam(name = "mode", defaultValue = "DRY_RUN") Mode mode,
+      @RequestParam(name = "handlers", required = false) Set<String> handlers)
+      throws ParseException {
+    if (adminToken.isEmpty() || token == null || !MessageDigest.isEqual(
+        adminToken.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8))) {
+      return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+    }
+    DateFormat format = new SimpleDateFormat("yyyy-MM-dd");
+    Date start = format.parse(startDate);
+    Date end = format.parse(endDate);
+
+    try {
+      return ok().body(replayService.replay(start, end, mode,
+          handlers == null ? GitHubHookServlet.REPLAYABLE_HANDLERS : handlers));
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().build();
+    }
+  }
+}
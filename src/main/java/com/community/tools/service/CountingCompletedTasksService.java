@@ -1,55 +1,171 @@
 package com.community.tools.service;
 
 import com.community.tools.service.github.GitHubConnectService;
+import com.community.tools.service.github.GitHubRateLimitGovernor;
+import com.community.tools.service.github.jpa.CompletedTask;
+import com.community.tools.service.github.jpa.CompletedTaskRepository;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.kohsuke.github.GHIssueState;
 import org.kohsuke.github.GHPullRequest;
+import org.kohsuke.github.GHRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+/**
+ * Completed tasks of trainees, e.g closed pull requests with label "done".
+ * Kept in table completed_tasks and in memory, updated by webhooks
+ * and reconciled with GitHub periodically.
+ */
+@Slf4j
 @RequiredArgsConstructor
 @Service
 public class CountingCompletedTasksService {
 
+  public static final String DONE = "done";
+
   private final GitHubConnectService service;
+  private final CompletedTaskRepository completedTaskRepository;
+  private final GitHubRateLimitGovernor governor;
+
+  private final Map<Integer, CompletedTask> tasksByPull = new HashMap<>();
+  private volatile Map<String, List<String>> completedTasks = Collections.emptyMap();
+  private Map<Integer, CompletedTask> updatedDuringCrawl;
+  private final Object reconcileLock = new Object();
+
+  /**
+   * Load completed tasks from the table.
+   */
+  @PostConstruct
+  public synchronized void load() {
+    completedTaskRepository.findAll().forEach(task -> tasksByPull.put(task.getPullNumber(), task));
+    publish();
+  }
+
+  /**
+   * Count completed tasks on GitHub right after start, if the table has none yet,
+   * e.g. on the first deploy, instead of waiting for the scheduled reconcile.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void reconcileIfEmpty() {
+    synchronized (this) {
+      if (!tasksByPull.isEmpty()) {
+        return;
+      }
+    }
+    try {
+      reconcile();
+    } catch (RuntimeException e) {
+      log.warn("Failed to count completed tasks on start", e);
+    }
+  }
 
   /**
    * Counting completed task, e.g closed pull request with label "done".
-   * @return Map with key - User login and Value - title of Pull request
-   * @throws IOException IOException
+   * @return Map with key - User login and Value - titles of Pull requests
+   */
+  public Map<String, List<String>> getCountedCompletedTasks() {
+    return completedTasks;
+  }
+
+  /**
+   * Update the task of pull request after it was closed, reopened, labeled or unlabeled.
+   * @param pullNumber number of pull request
+   * @param gitNick GitHub login of trainee
+   * @param title title of pull request
+   * @param completed true if pull request is closed and has label "done"
+   */
+  public synchronized void update(int pullNumber, String gitNick, String title,
+      boolean completed) {
+    CompletedTask task = completed ? new CompletedTask(pullNumber, gitNick, title) : null;
+    if (updatedDuringCrawl != null) {
+      updatedDuringCrawl.put(pullNumber, task);
+    }
+    if (task != null) {
+      completedTaskRepository.save(task);
+      tasksByPull.put(pullNumber, task);
+    } else if (tasksByPull.remove(pullNumber) != null) {
+      completedTaskRepository.deleteById(pullNumber);
+    } else {
+      return;
+    }
+    publish();
+  }
+
+  /**
+   * Fix drift from missed webhooks, counting completed tasks on GitHub again.
+   * Runs as batch work, so it gives way to interactive calls when the rate limit runs out.
+   * Runs one at a time, so updates from webhooks during an overlapping run are not lost.
    */
-  public Map<String, List<String>> getCountedCompletedTasks() throws IOException {
-
-    Map<String, List<GHPullRequest>> mapUsers1;
-    Map<String, List<String>> mapUsers = new HashMap<>();
-
-    mapUsers1 = service.getGitHubRepository()
-        .getPullRequests(GHIssueState.CLOSED)
-        .stream()
-        .filter(pr -> {
-          try {
-            return pr.getLabels().stream().anyMatch(s -> s.getName().equals("done"));
-          } catch (IOException e) {
-            throw new RuntimeException(e);
+  @Scheduled(fixedDelayString = "${github.completed.tasks.reconcile.millis}",
+      initialDelayString = "${github.completed.tasks.reconcile.millis}")
+  public void reconcile() {
+    synchronized (reconcileLock) {
+      reconcileExclusively();
+    }
+  }
+
+  private void reconcileExclusively() {
+    synchronized (this) {
+      updatedDuringCrawl = new HashMap<>();
+    }
+    try {
+      Map<Integer, CompletedTask> actual = governor.batch(() -> service.execute(this::crawl));
+      synchronized (this) {
+        // webhooks, which came during the crawl, are newer than the crawl
+        updatedDuringCrawl.forEach((number, task) -> {
+          if (task == null) {
+            actual.remove(number);
+          } else {
+            actual.put(number, task);
           }
-        })
-        .collect(Collectors.groupingBy(
-            (GHPullRequest ghPullRequest) -> {
-              try {
-                return ghPullRequest.getUser().getLogin();
-              } catch (IOException e) {
-                throw new RuntimeException(e);
-              }
-            }));
-
-    mapUsers1.forEach((key, value) -> mapUsers.put(key, new ArrayList<>()));
-    mapUsers1.forEach((key, value) -> value.forEach(e -> mapUsers.get(key).add(e.getTitle())));
-
-    return mapUsers;
+        });
+        List<Integer> stale = tasksByPull.keySet().stream()
+            .filter(number -> !actual.containsKey(number))
+            .collect(Collectors.toList());
+        if (!stale.isEmpty()) {
+          log.info("Reconciler removes {} completed tasks", stale.size());
+          stale.forEach(completedTaskRepository::deleteById);
+        }
+        completedTaskRepository.saveAll(actual.values());
+        tasksByPull.clear();
+        tasksByPull.putAll(actual);
+        publish();
+      }
+    } finally {
+      synchronized (this) {
+        updatedDuringCrawl = null;
+      }
+    }
+  }
+
+  private Map<Integer, CompletedTask> crawl(GHRepository repository) throws IOException {
+    Map<Integer, CompletedTask> tasks = new HashMap<>();
+    for (GHPullRequest pr : repository.getPullRequests(GHIssueState.CLOSED)) {
+      if (pr.getLabels().stream().anyMatch(s -> s.getName().equals(DONE))) {
+        tasks.put(pr.getNumber(), new CompletedTask(pr.getNumber(), pr.getUser().getLogin(),
+            pr.getTitle()));
+      }
+    }
+    return tasks;
+  }
+
+  private void publish() {
+    Map<String, List<String>> view = new HashMap<>();
+    tasksByPull.values().forEach(task -> view
+        .computeIfAbsent(task.getGitNick(), key -> new ArrayList<>())
+        .add(task.getTitle()));
+    view.replaceAll((key, titles) -> Collections.unmodifiableList(titles));
+    completedTasks = Collections.unmodifiableMap(view);
   }
 }
@@ -8,11 +8,13 @@ import static com.community.tools.util.statemachie.State.GOT_THE_FIRST_TASK;
 import static com.community.tools.util.statemachie.State.NEW_USER;
 
 import com.community.tools.service.github.GitHubService;
+import com.community.tools.service.slack.MessageTemplates;
 import com.community.tools.service.slack.SlackService;
 import com.community.tools.util.statemachie.Event;
 import com.community.tools.util.statemachie.State;
 import com.community.tools.util.statemachie.jpa.StateEntity;
 import com.community.tools.util.statemachie.jpa.StateMachineRepository;
+import java.util.Optional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -39,14 +41,12 @@ public class StateMachineService {
   @Value("${doNotUnderstandWhatTodo}")
   private String doNotUnderstandWhatTodo;
 
-  @Value("${noOneCase}")
-  private String noOneCase;
-  @Value("${notThatMessage}")
-  private String notThatMessage;
   @Autowired
   private StateMachineFactory<State, Event> factory;
   @Autowired
   private StateMachinePersister<State, Event, String> persister;
+  @Autowired
+  private MessageTemplates templates;
 
   private final GitHubService gitHubService;
   private final SlackService slackService;
@@ -63,7 +63,7 @@ public class StateMachineService {
     StateMachine<State, Event> machine = restoreMachine(userId);
 
     if (machine.getState().getId() == AGREED_LICENSE) {
-      slackService.sendPrivateMessage(user,
+      slackService.sendPrivateMessageAsync(user,
           checkNickName + nickName);
 
       boolean nicknameMatch = gitHubService.getGitHubAllUsers().stream()
@@ -79,11 +79,11 @@ public class StateMachineService {
         stateMachineRepository.save(stateEntity);
 
       } else {
-        slackService.sendPrivateMessage(user, failedCheckNickName);
+        slackService.sendPrivateMessageAsync(user, failedCheckNickName);
       }
 
     } else {
-      slackService.sendPrivateMessage(user, doNotUnderstandWhatTodo);
+      slackService.sendPrivateMessageAsync(user, doNotUnderstandWhatTodo);
 
     }
   }
@@ -103,7 +103,7 @@ public class StateMachineService {
           machine.sendEvent(FIRST_AGREE_MESS);
           persistMachine(machine, userId);
         } else {
-          slackService.sendBlocksMessage(user, notThatMessage);
+          slackService.sendBlocksMessageAsync(user, templates.get("notThatMessage").render());
         }
         break;
       case "theEnd":
@@ -111,13 +111,13 @@ public class StateMachineService {
         if (machine.getState().getId() == GOT_THE_FIRST_TASK) {
           machine.sendEvent(GET_THE_FIRST_TASK);
           slackService
-              .sendPrivateMessage(user, "that was the end, congrats");
+              .sendPrivateMessageAsync(user, "that was the end, congrats");
         } else {
-          slackService.sendBlocksMessage(user, notThatMessage);
+          slackService.sendBlocksMessageAsync(user, templates.get("notThatMessage").render());
         }
         break;
       default:
-        slackService.sendBlocksMessage(user, noOneCase);
+        slackService.sendBlocksMessageAsync(user, templates.get("noOneCase").render());
 
     }
   }
@@ -156,6 +156,25 @@ public class StateMachineService {
     return stateMachineRepository.findByGitName(nick).get().getUserID();
   }
 
+  /**
+   * Find Slack`s userId by GitHub login.
+   * @param nick GitHub login
+   * @return Slack`s userId, if trainee with this login is known
+   */
+  public Optional<String> findIdByNick(String nick) {
+    return stateMachineRepository.findByGitName(nick).map(StateEntity::getUserID);
+  }
+
+  /**
+   * Get key of the user lane for work of the GitHub login, the same lane as Slack events
+   * of the trainee use.
+   * @param nick GitHub login, may be null
+   * @return Slack`s userId if trainee with this login is known, otherwise the login
+   */
+  public String laneByNick(String nick) {
+    return nick == null ? "" : findIdByNick(nick).orElse(nick);
+  }
+
   /**
    * Persist machine for User by userId.
    * @param machine StateMachine
@@ -0,0 +1,114 @@
+package com.community.tools.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs work for one user in order on a single-threaded lane, chosen by hash of user id,
+ * so restore and persist of the user`s state machine never interleave.
+ * Different users are spread over all lanes and run in parallel.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserLaneExecutor {
+
+  @Value("${user.lanes.count}")
+  private int laneCount;
+  @Value("${user.lanes.queue.capacity}")
+  private int queueCapacity;
+
+  private final MeterRegistry meterRegistry;
+
+  private ThreadPoolExecutor[] lanes;
+
+  /**
+   * Start lanes. Number of lanes defaults to number of cores.
+   */
+  @PostConstruct
+  public void start() {
+    int count = laneCount > 0 ? laneCount : Runtime.getRuntime().availableProcessors();
+    lanes = new ThreadPoolExecutor[count];
+    for (int i = 0; i < count; i++) {
+      lanes[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+          new ArrayBlockingQueue<>(queueCapacity),
+          new CustomizableThreadFactory("user-lane-" + i + "-"));
+    }
+    Gauge.builder("user.lanes.queue.depth", this, UserLaneExecutor::queued)
+        .register(meterRegistry);
+  }
+
+  /**
+   * Let queued work finish before shutdown.
+   * @throws InterruptedException InterruptedException
+   */
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    for (ThreadPoolExecutor lane : lanes) {
+      lane.shutdown();
+    }
+    for (ThreadPoolExecutor lane : lanes) {
+      if (!lane.awaitTermination(10, TimeUnit.SECONDS)) {
+        log.warn("{} tasks were not run before shutdown", lane.getQueue().size());
+      }
+    }
+  }
+
+  /**
+   * Queue task after all earlier tasks of the user.
+   * @param userId Slack`s userId, or other key of the user
+   * @param task task
+   * @throws RejectedExecutionException if the lane is full
+   */
+  public void execute(String userId, Runnable task) {
+    lane(userId).execute(() -> {
+      try {
+        task.run();
+      } catch (RuntimeException e) {
+        log.warn("Failed to run task for user {}", userId, e);
+      }
+    });
+  }
+
+  /**
+   * Queue task after all earlier tasks of the user and let the caller wait for its outcome.
+   * @param userId Slack`s userId, or other key of the user
+   * @param task task
+   * @return future, completed when the task is run, exceptionally if it failed
+   * @throws RejectedExecutionException if the lane is full
+   */
+  public CompletableFuture<Void> submit(String userId, Runnable task) {
+    CompletableFuture<Void> done = new CompletableFuture<>();
+    lane(userId).execute(() -> {
+      try {
+        task.run();
+        done.complete(null);
+      } catch (RuntimeException e) {
+        done.completeExceptionally(e);
+      }
+    });
+    return done;
+  }
+
+  private ThreadPoolExecutor lane(String userId) {
+    int hash = userId.hashCode();
+    return lanes[Math.floorMod(hash ^ (hash >>> 16), lanes.length)];
+  }
+
+  private int queued() {
+    return Arrays.stream(lanes).mapToInt(lane -> lane.getQueue().size()).sum();
+  }
+}
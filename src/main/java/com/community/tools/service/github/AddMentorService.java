@@ -5,8 +5,6 @@ import com.community.tools.service.github.jpa.MentorsRepository;
 import com.community.tools.service.slack.SlackService;
 import com.community.tools.util.statemachie.Event;
 import com.community.tools.util.statemachie.State;
-import com.github.seratch.jslack.api.methods.SlackApiException;
-import java.io.IOException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.statemachine.StateMachine;
 import org.springframework.stereotype.Service;
@@ -46,17 +44,13 @@ public class AddMentorService {
    * @param url Url of pull request
    */
   public void sendNotifyWithMentor(String user, String url) {
-    try {
-      service
-          .sendMessageToConversation("test_3", "User "
-              + user + " create a pull request \n url: " + url
-              + "\n Please check it : <@" + mentorsRepository
-              .findByGitNick(stateMachineService.restoreMachineByNick(user)
-                  .getExtendedState().getVariables().get("mentor").toString()).get().getSlackId()
-              + ">");
-    } catch (IOException | SlackApiException e) {
-      throw new RuntimeException(e);
-    }
+    service
+        .sendMessageToConversationAsync("test_3", "User "
+            + user + " create a pull request \n url: " + url
+            + "\n Please check it : <@" + mentorsRepository
+            .findByGitNick(stateMachineService.restoreMachineByNick(user)
+                .getExtendedState().getVariables().get("mentor").toString()).get().getSlackId()
+            + ">");
   }
 
 }
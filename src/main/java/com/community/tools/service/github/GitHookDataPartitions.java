@@ -0,0 +1,145 @@
+package com.community.tools.service.github;
+
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Keeps monthly partitions of table GitHookData: creates partitions of the coming months
+ * and drops whole partitions, which are older than retention, instead of deleting rows.
+ * Rows, which went to the default partition while a partition was missing, are moved
+ * into the partition of their month when it is created.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class GitHookDataPartitions {
+
+  private static final String PREFIX = "GitHookData_";
+  private static final Pattern PARTITION = Pattern.compile(PREFIX + "(\\d{4})_(\\d{2})");
+  private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+  private static final String SELECT_PARTITIONS = "SELECT child.relname FROM pg_inherits "
+      + "JOIN pg_class child ON child.oid = pg_inherits.inhrelid "
+      + "JOIN pg_class parent ON parent.oid = pg_inherits.inhparent "
+      + "WHERE parent.relname = 'GitHookData'";
+  private static final String SELECT_DEFAULT_MONTHS = "SELECT DISTINCT "
+      + "to_char(\"time\" AT TIME ZONE 'UTC', 'YYYY-MM') FROM public.\"GitHookData_default\"";
+
+  @Value("${github.hook.data.partitions.ahead}")
+  private int monthsAhead;
+  @Value("${github.hook.data.retention.months}")
+  private int retentionMonths;
+
+  private final JdbcTemplate jdbcTemplate;
+  private final PlatformTransactionManager transactionManager;
+
+  /**
+   * Create partitions up to monthsAhead months after the current one and of the months,
+   * which have rows in the default partition, then drop partitions older than
+   * retentionMonths, if retention is set.
+   */
+  @PostConstruct
+  @Scheduled(cron = "${github.hook.data.partitions.cron}")
+  public void maintain() {
+    YearMonth now = YearMonth.now(ZoneOffset.UTC);
+    try {
+      List<String> partitions = jdbcTemplate.queryForList(SELECT_PARTITIONS, String.class);
+      Set<YearMonth> months = new TreeSet<>();
+      for (int i = 0; i <= monthsAhead; i++) {
+        months.add(now.plusMonths(i));
+      }
+      jdbcTemplate.queryForList(SELECT_DEFAULT_MONTHS, String.class)
+          .forEach(month -> months.add(YearMonth.parse(month)));
+      for (YearMonth month : months) {
+        if (!partitions.contains(nameOf(month))) {
+          createPartition(month);
+          partitions.add(nameOf(month));
+        }
+      }
+      if (retentionMonths > 0) {
+        for (String partition : expired(partitions, now, retentionMonths)) {
+          log.info("Dropping partition {} of webhook data", partition);
+          jdbcTemplate.execute("DROP TABLE IF EXISTS public.\"" + partition + "\"");
+        }
+      }
+    } catch (DataAccessException e) {
+      log.warn("Failed to maintain partitions of webhook data", e);
+    }
+  }
+
+  /**
+   * Create the partition detached, move rows of its month out of the default partition
+   * and attach it, all in one transaction. Attaching a partition of a month, which
+   * has rows in the default partition, would fail otherwise.
+   */
+  private void createPartition(YearMonth month) {
+    List<String> statements = createPartitionStatements(month);
+    new TransactionTemplate(transactionManager).execute(status -> {
+      jdbcTemplate.execute(statements.get(0));
+      int moved = jdbcTemplate.update(statements.get(1));
+      jdbcTemplate.execute(statements.get(2));
+      if (moved > 0) {
+        log.warn("Moved {} rows of webhook data from default partition to {}", moved,
+            nameOf(month));
+      }
+      return null;
+    });
+  }
+
+  static String nameOf(YearMonth month) {
+    return PREFIX + month.format(SUFFIX);
+  }
+
+  static List<String> createPartitionStatements(YearMonth month) {
+    String partition = "public.\"" + nameOf(month) + "\"";
+    String from = "'" + month.atDay(1) + " 00:00:00+00'";
+    String to = "'" + month.plusMonths(1).atDay(1) + " 00:00:00+00'";
+    return Arrays.asList(
+        "CREATE TABLE " + partition + " (LIKE public.\"GitHookData\" INCLUDING DEFAULTS)",
+        "WITH moved AS (DELETE FROM public.\"GitHookData_default\" "
+            + "WHERE \"time\" >= " + from + " AND \"time\" < " + to + " "
+            + "RETURNING \"time\", \"event\", \"jsonb_data\") "
+            + "INSERT INTO " + partition + " (\"time\", \"event\", \"jsonb_data\") "
+            + "SELECT \"time\", \"event\", \"jsonb_data\" FROM moved",
+        "ALTER TABLE public.\"GitHookData\" ATTACH PARTITION " + partition + " "
+            + "FOR VALUES FROM (" + from + ") TO (" + to + ")");
+  }
+
+  /**
+   * Find monthly partitions, which hold only rows older than retention.
+   * Partitions with other names, e.g. the default one, are never dropped.
+   * @param partitions names of partitions
+   * @param now current month
+   * @param retentionMonths number of months to keep, including the current one
+   * @return names of expired partitions
+   */
+  static List<String> expired(List<String> partitions, YearMonth now, int retentionMonths) {
+    YearMonth oldestKept = now.minusMonths(retentionMonths - 1L);
+    List<String> expired = new ArrayList<>();
+    for (String partition : partitions) {
+      Matcher matcher = PARTITION.matcher(partition);
+      if (matcher.matches() && YearMonth.of(Integer.parseInt(matcher.group(1)),
+          Integer.parseInt(matcher.group(2))).isBefore(oldestKept)) {
+        expired.add(partition);
+      }
+    }
+    return expired;
+  }
+}
@@ -0,0 +1,127 @@
+package com.community.tools.service.github;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Write-behind buffer of webhook payloads for table GitHookData. Payloads are inserted
+ * through the pooled DataSource in JDBC batches, when a batch is full or on schedule.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class GitHookDataWriter {
+
+  private static final String INSERT_HOOK_DATA = "INSERT INTO public.\"GitHookData\" "
+      + "(\"time\", \"event\", \"jsonb_data\") VALUES (?, ?, ?::jsonb)";
+
+  @Value("${github.hook.data.batch.size}")
+  private int batchSize;
+  @Value("${github.hook.data.buffer.capacity}")
+  private int bufferCapacity;
+
+  private final JdbcTemplate jdbcTemplate;
+  private final MeterRegistry meterRegistry;
+
+  private BlockingQueue<Object[]> buffer;
+  private ExecutorService writer;
+  private final AtomicBoolean flushScheduled = new AtomicBoolean();
+  private Counter failed;
+
+  /**
+   * Create buffer and writer thread, register metrics of buffer.
+   */
+  @PostConstruct
+  public void init() {
+    buffer = new LinkedBlockingQueue<>(bufferCapacity);
+    writer = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("git-hook-data-"));
+    Gauge.builder("github.hook.data.buffered", buffer, Collection::size)
+        .register(meterRegistry);
+    failed = meterRegistry.counter("github.hook.data.failed");
+  }
+
+  /**
+   * Flush the buffer before shutdown.
+   */
+  @PreDestroy
+  public void stop() {
+    writer.shutdown();
+    try {
+      writer.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    flush();
+  }
+
+  /**
+   * Buffer the payload. If the buffer is full, the payload is inserted at once.
+   * A full batch is flushed by the writer thread, at most one flush is queued at a time.
+   * After shutdown the caller flushes, so late payloads are not left in the buffer.
+   * @param event value of X-GitHub-Event header
+   * @param json payload of the webhook
+   */
+  public void write(String event, String json) {
+    Object[] row = {new Timestamp(System.currentTimeMillis()), event, json};
+    if (!buffer.offer(row)) {
+      log.warn("Webhook data buffer is full, inserting payload at once");
+      insert(Collections.singletonList(row));
+      return;
+    }
+    if (buffer.size() >= batchSize && flushScheduled.compareAndSet(false, true)) {
+      try {
+        writer.execute(() -> {
+          flushScheduled.set(false);
+          flush();
+        });
+      } catch (RejectedExecutionException e) {
+        flushScheduled.set(false);
+        flush();
+      }
+    }
+  }
+
+  /**
+   * Insert all buffered payloads in batches.
+   */
+  @Scheduled(fixedDelayString = "${github.hook.data.flush.millis}")
+  public synchronized void flush() {
+    List<Object[]> rows = new ArrayList<>(batchSize);
+    while (buffer.drainTo(rows, batchSize) > 0) {
+      insert(rows);
+      rows = new ArrayList<>(batchSize);
+    }
+  }
+
+  private void insert(List<Object[]> rows) {
+    try {
+      jdbcTemplate.batchUpdate(INSERT_HOOK_DATA, rows);
+    } catch (DataAccessException e) {
+      failed.increment(rows.size());
+      log.error("Failed to store {} webhook payloads", rows.size(), e);
+    }
+  }
+}
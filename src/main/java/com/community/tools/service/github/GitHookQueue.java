@@ -0,0 +1,124 @@
+package com.community.tools.service.github;
+
+import java.sql.Timestamp;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Durable queue of verified webhooks in table GitHookQueue, with dead letters
+ * in table GitHookDeadLetter. A webhook is claimed with a lease in one short statement,
+ * so no transaction stays open while its handlers run. Only the oldest webhook
+ * of a trainee can be claimed, so webhooks of a trainee are handled in order
+ * by workers of all instances, retries included. A row keeps the number of its handlers,
+ * which already succeeded, so a retry does not run them again.
+ */
+@Component
+@RequiredArgsConstructor
+public class GitHookQueue {
+
+  private static final String INSERT_HOOK = "INSERT INTO public.\"GitHookQueue\" "
+      + "(\"event\", \"delivery_id\", \"trainee\", \"body\") VALUES (?, ?, ?, ?)";
+  private static final String CLAIM_HOOK = "UPDATE public.\"GitHookQueue\" "
+      + "SET \"next_attempt_at\" = now() + ? * interval '1 millisecond' "
+      + "WHERE \"id\" = (SELECT q.\"id\" FROM public.\"GitHookQueue\" q "
+      + "WHERE q.\"next_attempt_at\" <= now() "
+      + "AND mod(abs(hashtext(coalesce(q.\"trainee\", ''))::bigint), ?) = ? "
+      + "AND NOT EXISTS (SELECT 1 FROM public.\"GitHookQueue\" earlier "
+      + "WHERE earlier.\"trainee\" = q.\"trainee\" AND earlier.\"id\" < q.\"id\") "
+      + "ORDER BY q.\"id\" LIMIT 1 FOR UPDATE SKIP LOCKED) "
+      + "RETURNING \"id\", \"event\", \"delivery_id\", \"trainee\", \"body\", "
+      + "\"attempts\", \"handled\", \"received_at\"";
+  private static final String EXTEND_LEASE = "UPDATE public.\"GitHookQueue\" "
+      + "SET \"next_attempt_at\" = now() + ? * interval '1 millisecond' WHERE \"id\" = ?";
+  private static final String DELETE_HOOK = "DELETE FROM public.\"GitHookQueue\" WHERE \"id\" = ?";
+  private static final String RETRY_HOOK = "UPDATE public.\"GitHookQueue\" "
+      + "SET \"attempts\" = \"attempts\" + 1, \"handled\" = ?, "
+      + "\"next_attempt_at\" = now() + ? * interval '1 millisecond', \"last_error\" = ? "
+      + "WHERE \"id\" = ?";
+  private static final String MOVE_TO_DEAD_LETTERS = "WITH failed AS ("
+      + "DELETE FROM public.\"GitHookQueue\" WHERE \"id\" = ? RETURNING \"id\", \"event\", "
+      + "\"delivery_id\", \"trainee\", \"body\", \"attempts\", \"received_at\") "
+      + "INSERT INTO public.\"GitHookDeadLetter\" (\"id\", \"event\", \"delivery_id\", "
+      + "\"trainee\", \"body\", \"attempts\", \"received_at\", \"last_error\") "
+      + "SELECT \"id\", \"event\", \"delivery_id\", \"trainee\", \"body\", \"attempts\" + 1, "
+      + "\"received_at\", ? FROM failed";
+  private static final String SELECT_DEPTH_AND_LAG = "SELECT count(*), "
+      + "coalesce(extract(epoch FROM now() - min(\"received_at\")), 0) "
+      + "FROM public.\"GitHookQueue\"";
+
+  private final JdbcTemplate jdbcTemplate;
+
+  /**
+   * Persist the webhook to be handled by workers.
+   * @param event value of X-GitHub-Event header
+   * @param deliveryId value of X-GitHub-Delivery header, may be null
+   * @param trainee GitHub login of trainee, rows of one trainee go to one worker
+   * @param body raw body
+   */
+  public void enqueue(String event, String deliveryId, String trainee, String body) {
+    jdbcTemplate.update(INSERT_HOOK, event, deliveryId, trainee, body);
+  }
+
+  /**
+   * Claim the oldest due webhook of the worker, which is the oldest one of its trainee.
+   * Trainees are spread over workers by hash of login. The webhook is not due again
+   * until the lease ends, so it is taken again only if this worker dies.
+   * @param worker index of worker
+   * @param workers number of workers
+   * @param leaseMillis lease of webhook
+   * @return webhook or null if the worker has none due
+   */
+  QueuedHook claim(int worker, int workers, long leaseMillis) {
+    List<QueuedHook> hooks = jdbcTemplate.query(CLAIM_HOOK, (rs, rowNum) -> new QueuedHook(
+        rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5),
+        rs.getInt(6), rs.getInt(7), rs.getTimestamp(8)), leaseMillis, workers, worker);
+    return hooks.isEmpty() ? null : hooks.get(0);
+  }
+
+  void extendLease(long id, long leaseMillis) {
+    jdbcTemplate.update(EXTEND_LEASE, leaseMillis, id);
+  }
+
+  void complete(long id) {
+    jdbcTemplate.update(DELETE_HOOK, id);
+  }
+
+  /**
+   * Make the webhook due again after the delay.
+   * @param id id of webhook
+   * @param delayMillis delay before the next attempt
+   * @param error error of the failed attempt
+   * @param handled number of handlers, which succeeded so far and are skipped by the retry
+   */
+  void retry(long id, long delayMillis, String error, int handled) {
+    jdbcTemplate.update(RETRY_HOOK, handled, delayMillis, error, id);
+  }
+
+  void deadLetter(long id, String error) {
+    jdbcTemplate.update(MOVE_TO_DEAD_LETTERS, id, error);
+  }
+
+  /**
+   * Get number of queued webhooks and age of the oldest one.
+   * @return array of depth and lag in seconds
+   */
+  double[] depthAndLag() {
+    return jdbcTemplate.queryForObject(SELECT_DEPTH_AND_LAG,
+        (rs, rowNum) -> new double[] {rs.getLong(1), rs.getDouble(2)});
+  }
+
+  @Value
+  static class QueuedHook {
+    long id;
+    String event;
+    String deliveryId;
+    String trainee;
+    String body;
+    int attempts;
+    int handled;
+    Timestamp receivedAt;
+  }
+}
@@ -0,0 +1,251 @@
+package com.community.tools.service.github;
+
+import com.community.tools.service.StateMachineService;
+import com.community.tools.service.UserLaneExecutor;
+import com.community.tools.service.github.GitHookQueue.QueuedHook;
+import com.community.tools.service.github.WebhookDispatchTable.Route;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drains the durable webhook queue. Every worker claims the webhooks of its share of trainees
+ * and runs their handlers on the trainee's lane, waiting for the outcome outside of
+ * any transaction. A failed webhook is retried with exponential backoff and moved
+ * to the dead letters after maxAttempts. A retry skips the handlers, which already succeeded,
+ * so e.g. a Slack message is not sent twice.
+ * Events of a webhook are stored once, when it leaves the queue.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class GitHookQueueWorker {
+
+  private static final int MAX_ERROR_LENGTH = 1000;
+
+  @Value("${github.hook.queue.workers}")
+  private int workers;
+  @Value("${github.hook.queue.poll.millis}")
+  private long pollMillis;
+  @Value("${github.hook.queue.max.attempts}")
+  private int maxAttempts;
+  @Value("${github.hook.queue.backoff.millis}")
+  private long backoffMillis;
+  @Value("${github.hook.queue.max.backoff.millis}")
+  private long maxBackoffMillis;
+  @Value("${github.hook.queue.lane.timeout.millis}")
+  private long laneTimeoutMillis;
+  @Value("${github.hook.queue.lease.millis}")
+  private long leaseMillis;
+
+  private final GitHookQueue queue;
+  private final GitHubHookServlet hookServlet;
+  private final GitHubEventStore eventStore;
+  private final UserLaneExecutor userLanes;
+  private final StateMachineService stateMachineService;
+  private final MeterRegistry meterRegistry;
+
+  private final AtomicLong depth = new AtomicLong();
+  private final AtomicLong lagSeconds = new AtomicLong();
+  private ScheduledExecutorService pool;
+  private Counter processed;
+  private Counter retries;
+  private Counter deadLetters;
+  private Counter eventFailures;
+  private Timer delay;
+
+  /**
+   * Register metrics and start workers.
+   */
+  @PostConstruct
+  public void start() {
+    registerMetrics();
+    pool = Executors.newScheduledThreadPool(workers,
+        new CustomizableThreadFactory("git-hook-worker-"));
+    for (int i = 0; i < workers; i++) {
+      int worker = i;
+      pool.scheduleWithFixedDelay(() -> drain(worker), pollMillis, pollMillis,
+          TimeUnit.MILLISECONDS);
+    }
+  }
+
+  void registerMetrics() {
+    Gauge.builder("github.hook.queue.depth", depth, AtomicLong::get).register(meterRegistry);
+    Gauge.builder("github.hook.queue.lag.seconds", lagSeconds, AtomicLong::get)
+        .register(meterRegistry);
+    processed = meterRegistry.counter("github.hook.queue.processed");
+    retries = meterRegistry.counter("github.hook.queue.retries");
+    deadLetters = meterRegistry.counter("github.hook.queue.dead.letters");
+    eventFailures = meterRegistry.counter("github.hook.queue.event.failures");
+    delay = meterRegistry.timer("github.hook.queue.delay");
+  }
+
+  /**
+   * Stop workers, claimed webhooks are taken again after their lease ends.
+   */
+  @PreDestroy
+  public void stop() {
+    pool.shutdownNow();
+  }
+
+  /**
+   * Refresh depth of the queue and age of its oldest webhook.
+   */
+  @Scheduled(fixedDelayString = "${github.hook.queue.poll.millis}")
+  public void refreshMetrics() {
+    try {
+      double[] depthAndLag = queue.depthAndLag();
+      depth.set((long) depthAndLag[0]);
+      lagSeconds.set((long) depthAndLag[1]);
+    } catch (DataAccessException e) {
+      log.warn("Failed to read depth of webhook queue", e);
+    }
+  }
+
+  /**
+   * Claim due webhooks of the worker one by one until none is left.
+   * @param worker index of worker
+   */
+  void drain(int worker) {
+    try {
+      QueuedHook hook;
+      while (!Thread.currentThread().isInterrupted()
+          && (hook = queue.claim(worker, workers, leaseMillis)) != null) {
+        process(hook);
+      }
+    } catch (RuntimeException e) {
+      log.warn("Worker {} of webhook queue failed", worker, e);
+    }
+  }
+
+  private void process(QueuedHook hook) {
+    GitHubWebhookPayload payload;
+    try {
+      payload = GitHubWebhookPayload.parse(hook.getBody().getBytes(StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      deadLetter(hook, e);
+      return;
+    }
+    AtomicInteger handled = new AtomicInteger(hook.getHandled());
+    Throwable failure;
+    try {
+      failure = handle(hook, payload, handled);
+    } catch (InterruptedException e) {
+      // the lease ends and the webhook is taken again
+      Thread.currentThread().interrupt();
+      return;
+    }
+    if (failure == null) {
+      recordEvents(hook, payload);
+      queue.complete(hook.getId());
+      processed.increment();
+      delay.record(System.currentTimeMillis() - hook.getReceivedAt().getTime(),
+          TimeUnit.MILLISECONDS);
+    } else if (hook.getAttempts() + 1 >= maxAttempts) {
+      recordEvents(hook, payload);
+      deadLetter(hook, failure);
+    } else {
+      long backoff = backoff(hook.getAttempts());
+      log.info("Webhook {} failed, retry in {} ms", hook.getId(), backoff, failure);
+      queue.retry(hook.getId(), backoff, errorOf(failure), handled.get());
+      retries.increment();
+    }
+  }
+
+  /**
+   * Run handlers of the webhook on the trainee's lane. If the lane does not start them
+   * in laneTimeoutMillis, they are cancelled and never run, so a retry can not run them
+   * twice. Once started, they are waited for until they finish, extending the lease.
+   * @param handled number of handlers, which already succeeded, incremented by every success
+   * @return failure of handlers or null if they succeeded
+   */
+  private Throwable handle(QueuedHook hook, GitHubWebhookPayload payload,
+      AtomicInteger handled) throws InterruptedException {
+    Route route = hookServlet.findRoute(hook.getEvent(), payload.getAction());
+    if (route == null) {
+      return null;
+    }
+    String lane = stateMachineService.laneByNick(hook.getTrainee());
+    AtomicBoolean started = new AtomicBoolean();
+    CompletableFuture<Void> done;
+    try {
+      done = userLanes.submit(lane, () -> {
+        if (started.compareAndSet(false, true)) {
+          route.handle(payload, handled);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      return e;
+    }
+    long waitMillis = laneTimeoutMillis;
+    while (true) {
+      try {
+        done.get(waitMillis, TimeUnit.MILLISECONDS);
+        return null;
+      } catch (ExecutionException e) {
+        return e.getCause();
+      } catch (TimeoutException e) {
+        if (started.compareAndSet(false, true)) {
+          return e;
+        }
+        queue.extendLease(hook.getId(), leaseMillis);
+        waitMillis = leaseMillis / 2;
+      }
+    }
+  }
+
+  /**
+   * Store events of the webhook. Its handlers ran already, so a failure here
+   * is only counted and never makes the webhook run again.
+   */
+  private void recordEvents(QueuedHook hook, GitHubWebhookPayload payload) {
+    try {
+      eventStore.record(hook.getEvent(), payload);
+    } catch (RuntimeException e) {
+      log.warn("Failed to store events of webhook {}", hook.getId(), e);
+      eventFailures.increment();
+    }
+  }
+
+  private void deadLetter(QueuedHook hook, Throwable cause) {
+    log.error("Webhook {} moved to dead letters", hook.getId(), cause);
+    queue.deadLetter(hook.getId(), errorOf(cause));
+    deadLetters.increment();
+  }
+
+  /**
+   * Get delay before the next attempt, doubled after every failed attempt.
+   * @param attempts number of failed attempts before the current one
+   * @return delay in millis
+   */
+  long backoff(int attempts) {
+    return Math.min(maxBackoffMillis, backoffMillis << Math.min(attempts, 30));
+  }
+
+  private static String errorOf(Throwable cause) {
+    String error = String.valueOf(cause);
+    return error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+  }
+}
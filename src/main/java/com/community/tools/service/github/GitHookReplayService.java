@@ -0,0 +1,172 @@
+package com.community.tools.service.github;
+
+import com.community.tools.service.StateMachineService;
+import com.community.tools.service.UserLaneExecutor;
+import com.community.tools.service.github.WebhookDispatchTable.Route;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import javax.sql.DataSource;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Replays stored webhooks of GitHookData through the webhook handlers, e.g. to recover
+ * mentors or completed tasks lost by a bug. Rows are streamed in time order with
+ * a server-side cursor. Webhooks run on the user lane of their trainee, the same one
+ * live webhooks and Slack events use, so they never interleave with live work
+ * of the trainee. Only handlers, which are safe to run again, can be replayed.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class GitHookReplayService {
+
+  private static final String SELECT_HOOK_DATA = "SELECT \"event\", \"jsonb_data\"::text "
+      + "FROM public.\"GitHookData\" WHERE \"time\" >= ? AND \"time\" < ? ORDER BY \"time\"";
+
+  private static final long LANE_FULL_BACKOFF_MILLIS = 100;
+
+  @Value("${github.replay.queue.capacity}")
+  private int queueCapacity;
+  @Value("${github.replay.fetch.size}")
+  private int fetchSize;
+
+  private final DataSource dataSource;
+  private final PlatformTransactionManager transactionManager;
+  private final GitHubHookServlet hookServlet;
+  private final UserLaneExecutor userLanes;
+  private final StateMachineService stateMachineService;
+  private final MeterRegistry meterRegistry;
+
+  public enum Mode {
+    DRY_RUN, APPLY
+  }
+
+  /**
+   * Replay webhooks, which were received in the interval. Only one replay runs at a time.
+   * @param from start of interval, inclusive
+   * @param to end of interval, exclusive
+   * @param mode DRY_RUN only counts the handlers to run, APPLY runs them
+   * @param handlers names of handlers to run, from GitHubHookServlet.REPLAYABLE_HANDLERS
+   * @return report of replay
+   * @throws IllegalArgumentException if handlers are empty or not replayable
+   */
+  public synchronized ReplayReport replay(Date from, Date to, Mode mode,
+      Set<String> handlers) {
+    if (handlers.isEmpty() || !GitHubHookServlet.REPLAYABLE_HANDLERS.containsAll(handlers)) {
+      throw new IllegalArgumentException("Handlers " + handlers + " can not be replayed, "
+          + "choose from " + GitHubHookServlet.REPLAYABLE_HANDLERS);
+    }
+    ReplayReport report = new ReplayReport(mode);
+    JdbcTemplate cursor = new JdbcTemplate(dataSource);
+    cursor.setFetchSize(fetchSize);
+    TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+    readOnly.setReadOnly(true);
+
+    // replayed webhooks, which wait on user lanes, so live work still finds room there
+    Semaphore inFlight = new Semaphore(queueCapacity);
+    try {
+      readOnly.execute(status -> {
+        cursor.query(SELECT_HOOK_DATA,
+            (ResultSet rs) -> dispatch(rs, inFlight, mode, handlers, report),
+            new Timestamp(from.getTime()), new Timestamp(to.getTime()));
+        return null;
+      });
+    } finally {
+      inFlight.acquireUninterruptibly(queueCapacity);
+    }
+    log.info("Replay of webhooks from {} to {} finished: {}", from, to, report);
+    return report;
+  }
+
+  private void dispatch(ResultSet rs, Semaphore inFlight, Mode mode,
+      Set<String> handlers, ReplayReport report) throws SQLException {
+    report.read();
+    GitHubWebhookPayload payload;
+    try {
+      payload = GitHubWebhookPayload.parse(rs.getString(2).getBytes(StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      report.failed();
+      return;
+    }
+    String event = rs.getString(1);
+    if (event == null) {
+      event = eventOf(payload);
+    }
+    Route route = event == null ? null : hookServlet.findRoute(event, payload.getAction());
+    String name = event + ":" + payload.getAction();
+    if (route != null) {
+      route = route.only(handlers, meterRegistry.timer("github.webhook.replay", "route", name));
+    }
+    if (route == null) {
+      report.unrouted();
+      return;
+    }
+    if (mode == Mode.DRY_RUN) {
+      report.routed(name);
+      return;
+    }
+    Route selected = route;
+    submit(stateMachineService.laneByNick(payload.getTrainee()), () -> {
+      try {
+        selected.handle(payload);
+        report.routed(name);
+      } catch (RuntimeException e) {
+        log.warn("Failed to replay {} of {}", name, payload.getTrainee(), e);
+        report.failed();
+      }
+    }, inFlight);
+  }
+
+  /**
+   * Queue the task on the user lane. Blocks the cursor while too many replayed webhooks
+   * wait or the lane is full, instead of dropping rows.
+   */
+  private void submit(String lane, Runnable task, Semaphore inFlight) {
+    try {
+      inFlight.acquire();
+      while (true) {
+        try {
+          userLanes.submit(lane, task).whenComplete((result, e) -> inFlight.release());
+          return;
+        } catch (RejectedExecutionException e) {
+          Thread.sleep(LANE_FULL_BACKOFF_MILLIS);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Guess X-GitHub-Event of a row, which was stored before the event was.
+   * @param payload payload of the webhook
+   * @return event or null if the webhook can not have handlers
+   */
+  static String eventOf(GitHubWebhookPayload payload) {
+    if (payload.getPullRequest() != null) {
+      if (payload.getReviewAuthor() != null) {
+        return "pull_request_review";
+      }
+      return payload.getCommentAuthor() != null ? "pull_request_review_comment" : "pull_request";
+    }
+    if (payload.getIssueAuthor() != null && payload.getCommentAuthor() != null) {
+      return "issue_comment";
+    }
+    return null;
+  }
+}
@@ -0,0 +1,92 @@
+package com.community.tools.service.github;
+
+import com.community.tools.util.IdDeduplicator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.File;
+import okhttp3.Cache;
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
+import org.kohsuke.github.HttpConnector;
+import org.kohsuke.github.extras.okhttp3.OkHttpConnector;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@Configuration
+public class GitHubClientConfig {
+
+  private static final int NOT_MODIFIED = 304;
+
+  @Value("${github.http.cache.dir}")
+  private String cacheDir;
+  @Value("${github.http.cache.max.bytes}")
+  private long cacheMaxBytes;
+
+  /**
+   * On-disk cache of GitHub responses. Cached pages are revalidated with If-None-Match,
+   * and GitHub does not count 304 answers against the rate limit.
+   * @param meterRegistry registry for hits and misses of cache
+   * @return Cache
+   */
+  @Bean(destroyMethod = "close")
+  public Cache gitHubHttpCache(MeterRegistry meterRegistry) {
+    Cache cache = new Cache(new File(cacheDir), cacheMaxBytes);
+    FunctionCounter.builder("github.http.cache.requests", cache, Cache::requestCount)
+        .register(meterRegistry);
+    FunctionCounter.builder("github.http.cache.hits", cache, Cache::hitCount)
+        .register(meterRegistry);
+    FunctionCounter.builder("github.http.cache.network", cache, Cache::networkCount)
+        .register(meterRegistry);
+    return cache;
+  }
+
+  /**
+   * Connector, which GitHub client sends its requests through.
+   * Batch requests wait for their turn from the governor, every answer updates its budget.
+   * @param gitHubHttpCache cache of responses
+   * @param governor rate limit governor
+   * @param meterRegistry registry for 304 answers
+   * @return HttpConnector
+   */
+  @Bean
+  public HttpConnector gitHubConnector(Cache gitHubHttpCache, GitHubRateLimitGovernor governor,
+      MeterRegistry meterRegistry) {
+    Counter notModified = meterRegistry.counter("github.http.not.modified");
+    OkHttpClient client = new OkHttpClient.Builder()
+        .cache(gitHubHttpCache)
+        .addInterceptor(chain -> {
+          governor.awaitTurn();
+          return chain.proceed(chain.request());
+        })
+        .addNetworkInterceptor(chain -> {
+          Response response = chain.proceed(chain.request());
+          governor.observe(response.header("X-RateLimit-Limit"),
+              response.header("X-RateLimit-Remaining"), response.header("X-RateLimit-Reset"));
+          if (response.code() == NOT_MODIFIED) {
+            notModified.increment();
+          }
+          return response;
+        })
+        .build();
+    // max-age=0 makes every cached page be revalidated instead of served stale
+    return new OkHttpConnector(client);
+  }
+
+  /**
+   * Deduplicator of GitHub webhooks by X-GitHub-Delivery, settings from github.hook.dedup.
+   * @param jdbcTemplate JdbcTemplate
+   * @param meterRegistry registry for counter of duplicates
+   * @param environment environment with settings
+   * @return IdDeduplicator
+   */
+  @Bean
+  public IdDeduplicator gitHubDeliveryDeduplicator(JdbcTemplate jdbcTemplate,
+      MeterRegistry meterRegistry, Environment environment) {
+    return new IdDeduplicator(jdbcTemplate, meterRegistry, environment, "GitHookDelivery",
+        "delivery_id", "github.hook.dedup", "github.hook.duplicates");
+  }
+}
@@ -1,32 +1,56 @@
 package com.community.tools.service.github;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import javax.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.kohsuke.github.GHRepository;
 import org.kohsuke.github.GitHub;
+import org.kohsuke.github.GitHubBuilder;
+import org.kohsuke.github.HttpConnector;
+import org.kohsuke.github.HttpException;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+/**
+ * Keeps one authenticated GitHub connection and repository handle for the whole application.
+ * Connects lazily and again only after GitHub answered 401.
+ */
+@Slf4j
+@RequiredArgsConstructor
 @Service
 public class GitHubConnectService {
 
+  private static final int OK = 200;
+  private static final int UNAUTHORIZED = 401;
+
   @Value("${github.token}")
   private String token;
 
   @Value("${github.repository}")
   private String nameRepository;
 
+  private final HttpConnector gitHubConnector;
+  private final MeterRegistry meterRegistry;
+
+  private volatile Connection connection;
+  private Counter reconnects;
+
+  @PostConstruct
+  public void init() {
+    reconnects = meterRegistry.counter("github.reconnects");
+  }
+
   /**
    * Get GitHub connection.
    * @return GitHub
    */
   public GitHub getGitHubConnection() {
-    GitHub gitHub;
-    try {
-      gitHub = GitHub.connectUsingOAuth(token);
-    } catch (IOException e) {
-      throw new RuntimeException(e);
-    }
-    return gitHub;
+    return connection().gitHub;
   }
 
   /**
@@ -34,12 +58,115 @@ public class GitHubConnectService {
    * @return GHRepository
    */
   public GHRepository getGitHubRepository() {
-    GHRepository repository;
+    return connection().repository;
+  }
+
+  /**
+   * Run call against the repository. If GitHub answers 401,
+   * connect again and repeat the call once.
+   * @param call call to GitHub
+   * @param <T> type of result
+   * @return result of call
+   */
+  public <T> T execute(GitHubCall<T> call) {
+    Connection current = connection();
     try {
-      repository = getGitHubConnection().getRepository(nameRepository);
-    } catch (IOException e) {
-      throw new RuntimeException(e);
+      return call.call(current.repository);
+    } catch (IOException | RuntimeException e) {
+      if (!isUnauthorized(e)) {
+        throw e instanceof RuntimeException ? (RuntimeException) e : new RuntimeException(e);
+      }
+      log.warn("GitHub answered 401, connecting again");
+      invalidate(current);
+      try {
+        return call.call(connection().repository);
+      } catch (IOException retryFailed) {
+        throw new RuntimeException(retryFailed);
+      }
+    }
+  }
+
+  /**
+   * Open response of the GitHub API for the path, e.g. one page of a list,
+   * to read it as a stream. If GitHub answers 401, connect again and repeat once.
+   * @param path path after the API url, with query
+   * @return connection with status 200, the caller must disconnect it
+   */
+  public HttpURLConnection open(String path) {
+    return execute(repository -> connect(path));
+  }
+
+  /**
+   * Get how many times the connection was dropped because of 401.
+   * @return number of reconnects
+   */
+  public long getReconnectCount() {
+    return (long) reconnects.count();
+  }
+
+  private Connection connection() {
+    Connection current = connection;
+    return current != null ? current : connect();
+  }
+
+  private synchronized Connection connect() {
+    if (connection == null) {
+      try {
+        GitHub gitHub = new GitHubBuilder()
+            .withOAuthToken(token)
+            .withConnector(gitHubConnector)
+            .build();
+        connection = new Connection(gitHub, gitHub.getRepository(nameRepository));
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+    return connection;
+  }
+
+  private HttpURLConnection connect(String path) throws IOException {
+    GitHub gitHub = getGitHubConnection();
+    HttpURLConnection http = gitHub.getConnector().connect(new URL(gitHub.getApiUrl() + path));
+    http.setRequestProperty("Authorization", "token " + token);
+    http.setRequestProperty("Accept", "application/vnd.github.v3+json");
+    int code = http.getResponseCode();
+    if (code != OK) {
+      String message = http.getResponseMessage();
+      http.disconnect();
+      throw new HttpException("GitHub answered " + code + " for " + path, code, message, path);
+    }
+    return http;
+  }
+
+  private synchronized void invalidate(Connection stale) {
+    if (connection == stale) {
+      connection = null;
+      reconnects.increment();
+    }
+  }
+
+  private static boolean isUnauthorized(Throwable e) {
+    for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+      if (cause instanceof HttpException
+          && ((HttpException) cause).getResponseCode() == UNAUTHORIZED) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @FunctionalInterface
+  public interface GitHubCall<T> {
+    T call(GHRepository repository) throws IOException;
+  }
+
+  private static class Connection {
+    private final GitHub gitHub;
+    private final GHRepository repository;
+
+    Connection(GitHub gitHub, GHRepository repository) {
+      this.gitHub = gitHub;
+      this.repository = repository;
     }
-    return repository;
   }
 }
@@ -0,0 +1,160 @@
+package com.community.tools.service.github;
+
+import static com.community.tools.model.Event.COMMENT;
+import static com.community.tools.model.Event.COMMIT;
+import static com.community.tools.model.Event.PULL_REQUEST_CLOSED;
+import static com.community.tools.model.Event.PULL_REQUEST_CREATED;
+
+import com.community.tools.model.Event;
+import com.community.tools.model.EventData;
+import com.community.tools.service.github.GitHubWebhookPayload.PullRequest;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.kohsuke.github.GHCompare;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Events of the repository, derived from webhooks and stored in typed, indexed columns,
+ * so events of a date range are read with one range scan instead of crawling GitHub.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class GitHubEventStore {
+
+  private static final String INSERT_EVENT = "INSERT INTO public.\"GitHookEvent\" "
+      + "(\"event_time\", \"event_type\", \"actor_login\") VALUES (?, ?, ?)";
+  private static final String SELECT_EVENTS = "SELECT \"event_time\", \"actor_login\", "
+      + "\"event_type\" FROM public.\"GitHookEvent\" "
+      + "WHERE \"event_time\" > ? AND \"event_time\" < ? ORDER BY \"event_time\"";
+  private static final String SELECT_COVERED_SINCE =
+      "SELECT min(\"received_at\") FROM public.\"GitHookEvent\"";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final GitHubConnectService service;
+  private final GitHubRateLimitGovernor governor;
+
+  private volatile Date coveredSince;
+
+  /**
+   * Store events of the webhook.
+   * @param githubEvent value of X-GitHub-Event header
+   * @param payload payload of the webhook
+   */
+  public void record(String githubEvent, GitHubWebhookPayload payload) {
+    List<EventData> events = eventsOf(githubEvent, payload, this::commitDates);
+    if (events.isEmpty()) {
+      return;
+    }
+    List<Object[]> rows = new ArrayList<>(events.size());
+    for (EventData event : events) {
+      rows.add(new Object[] {new Timestamp(event.getCreatedAt().getTime()),
+          event.getType().name(), event.getActorLogin()});
+    }
+    jdbcTemplate.batchUpdate(INSERT_EVENT, rows);
+  }
+
+  /**
+   * Check that all events since the date were recorded.
+   * @param date start of the date range
+   * @return true if the store received webhooks since the date
+   */
+  public boolean covers(Date date) {
+    Date since = coveredSince;
+    if (since == null) {
+      try {
+        since = jdbcTemplate.queryForObject(SELECT_COVERED_SINCE, Timestamp.class);
+      } catch (DataAccessException e) {
+        log.warn("Event store is not available", e);
+        return false;
+      }
+      if (since == null) {
+        return false;
+      }
+      coveredSince = since;
+    }
+    return !date.before(since);
+  }
+
+  /**
+   * Find events by the date interval.
+   * @param startDate startDate
+   * @param endDate endDate
+   * @return list of EventData ordered by time
+   */
+  public List<EventData> findEvents(Date startDate, Date endDate) {
+    return jdbcTemplate.query(SELECT_EVENTS, (rs, rowNum) -> new EventData(
+            new Date(rs.getTimestamp(1).getTime()), rs.getString(2),
+            Event.valueOf(rs.getString(3))),
+        new Timestamp(startDate.getTime()), new Timestamp(endDate.getTime()));
+  }
+
+  /**
+   * Derive events from the webhook the way the crawl of pull requests counts them:
+   * every commit of a pull request is a commit of its author at the commit's date.
+   * Commits come from synchronize of the pull request, which is sent for forks too.
+   * Pushes are not counted, their commits are either counted by synchronize already
+   * or do not belong to a pull request, e.g. a merge to the default branch.
+   * @param githubEvent value of X-GitHub-Event header
+   * @param payload payload of the webhook
+   * @param pushedCommits dates of commits, which a push added to pull request
+   * @return list of EventData
+   */
+  static List<EventData> eventsOf(String githubEvent, GitHubWebhookPayload payload,
+      PushedCommits pushedCommits) {
+    List<EventData> events = new ArrayList<>();
+    String action = payload.getAction();
+    if ("pull_request".equals(githubEvent) && action != null) {
+      PullRequest pull = payload.getPullRequest();
+      String author = pull.getAuthor();
+      switch (action) {
+        case "opened":
+          events.add(new EventData(date(pull.getCreatedAt()), author, PULL_REQUEST_CREATED));
+          break;
+        case "closed":
+          events.add(new EventData(date(pull.getClosedAt()), author, PULL_REQUEST_CLOSED));
+          break;
+        case "synchronize":
+          for (Date commitDate : pushedCommits.datesOf(payload.getBefore(), payload.getAfter())) {
+            events.add(new EventData(commitDate, author, COMMIT));
+          }
+          break;
+        default:
+          break;
+      }
+    } else if ("pull_request_review_comment".equals(githubEvent) && "created".equals(action)) {
+      events.add(new EventData(date(payload.getCommentCreatedAt()), payload.getCommentAuthor(),
+          COMMENT));
+    }
+    return events;
+  }
+
+  /**
+   * Get author dates of commits between two heads of pull request.
+   */
+  private List<Date> commitDates(String before, String after) {
+    return governor.batch(() -> service.execute(repository -> {
+      List<Date> dates = new ArrayList<>();
+      for (GHCompare.Commit commit : repository.getCompare(before, after).getCommits()) {
+        dates.add(commit.getCommit().getAuthor().getDate());
+      }
+      return dates;
+    }));
+  }
+
+  @FunctionalInterface
+  interface PushedCommits {
+    List<Date> datesOf(String before, String after);
+  }
+
+  private static Date date(String time) {
+    return Date.from(OffsetDateTime.parse(time).toInstant());
+  }
+}
@@ -0,0 +1,137 @@
+package com.community.tools.service.github;
+
+import com.community.tools.util.TokenBucket;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.kohsuke.github.PagedIterable;
+import org.kohsuke.github.PagedIterator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fetches sub-resources of many pull requests at once on a bounded pool.
+ * All page requests share one budget, so a fan-out never bursts over the rate limit,
+ * and run as batch work of the rate limit governor.
+ */
+@RequiredArgsConstructor
+@Component
+public class GitHubFetchEngine {
+
+  @Value("${github.fetch.threads}")
+  private int threads;
+  @Value("${github.fetch.requests.per.second}")
+  private int requestsPerSecond;
+  @Value("${github.fetch.page.size}")
+  private int pageSize;
+
+  private final GitHubRateLimitGovernor governor;
+
+  private ExecutorService pool;
+  private TokenBucket budget;
+
+  @PostConstruct
+  public void start() {
+    pool = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("github-fetch-"));
+    budget = new TokenBucket(requestsPerSecond, TimeUnit.SECONDS.toMillis(1));
+  }
+
+  @PreDestroy
+  public void stop() {
+    pool.shutdownNow();
+  }
+
+  /**
+   * Run fetches in parallel and merge their results in order of the fetches.
+   * @param fetches fetches, each returns part of the result
+   * @param <T> type of result
+   * @return results of all fetches
+   */
+  public <T> List<T> fetchAll(List<Callable<List<T>>> fetches) {
+    List<Future<List<T>>> futures = new ArrayList<>(fetches.size());
+    for (Callable<List<T>> fetch : fetches) {
+      futures.add(pool.submit(() -> governor.batch(fetch::call)));
+    }
+    List<T> results = new ArrayList<>();
+    try {
+      for (Future<List<T>> future : futures) {
+        results.addAll(future.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    } finally {
+      futures.forEach(future -> future.cancel(true));
+    }
+    return results;
+  }
+
+  /**
+   * Read all pages, taking one request from the budget before each page.
+   * @param iterable paged resource
+   * @param <T> type of items
+   * @return all items
+   * @throws IOException if the thread was interrupted while waiting for the budget
+   */
+  public <T> List<T> pages(PagedIterable<T> iterable) throws IOException {
+    return pagesWhile(iterable, item -> true);
+  }
+
+  /**
+   * Read pages until the first item, which does not meet the condition.
+   * Items of a sorted resource after that one are never requested.
+   * @param iterable paged resource
+   * @param condition condition, which items must meet
+   * @param <T> type of items
+   * @return items before the first one, which does not meet the condition
+   * @throws IOException IOException
+   */
+  public <T> List<T> pagesWhile(PagedIterable<T> iterable, Condition<T> condition)
+      throws IOException {
+    return governor.batch(() -> {
+      List<T> items = new ArrayList<>();
+      PagedIterator<T> iterator = iterable.withPageSize(pageSize).iterator();
+      while (true) {
+        acquire();
+        if (!iterator.hasNext()) {
+          return items;
+        }
+        for (T item : iterator.nextPage()) {
+          if (!condition.test(item)) {
+            return items;
+          }
+          items.add(item);
+        }
+      }
+    });
+  }
+
+  private void acquire() throws IOException {
+    for (long wait = budget.tryAcquire(System.currentTimeMillis()); wait > 0;
+        wait = budget.tryAcquire(System.currentTimeMillis())) {
+      try {
+        Thread.sleep(wait);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException(e);
+      }
+    }
+  }
+
+  @FunctionalInterface
+  public interface Condition<T> {
+    boolean test(T item) throws IOException;
+  }
+}
@@ -3,12 +3,15 @@ package com.community.tools.service.github;
 import com.community.tools.service.StateMachineService;
 import com.community.tools.util.statemachie.Event;
 import com.community.tools.util.statemachie.State;
+import java.util.Optional;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.statemachine.StateMachine;
 import org.springframework.statemachine.persist.StateMachinePersister;
 import org.springframework.stereotype.Service;
 
+@Slf4j
 @Service
 public class GitHubGiveNewTask {
   @Value("${git.number.of.tasks}")
@@ -20,9 +23,15 @@ public class GitHubGiveNewTask {
 
   /**
    * Give new Task to the trainee. Checks for the last task.
+   * Does nothing if no trainee has the login, e.g. the pull request is opened by a mentor.
    * @param user GitHub login of trainee
    */
   public void giveNewTask(String user) {
+    Optional<String> id = stateMachineService.findIdByNick(user);
+    if (!id.isPresent()) {
+      log.info("No trainee with GitHub login {}, no new task is given", user);
+      return;
+    }
     try {
       StateMachine<State, Event> machine = stateMachineService.restoreMachineByNick(user);
       machine.sendEvent(Event.GET_THE_NEW_TASK);
@@ -31,7 +40,7 @@ public class GitHubGiveNewTask {
       } else {
         machine.sendEvent(Event.CHANGE_TASK);
       }
-      persister.persist(machine,stateMachineService.getIdByNick(user));
+      persister.persist(machine, id.get());
     } catch (Exception e) {
       throw new RuntimeException(e);
     }
@@ -1,43 +1,61 @@
 package com.community.tools.service.github;
 
-import com.community.tools.service.StateMachineService;
+import static com.community.tools.service.github.WebhookDispatchTable.named;
+
+import com.community.tools.service.CountingCompletedTasksService;
+import com.community.tools.service.github.GitHubWebhookPayload.PullRequest;
+import com.community.tools.service.github.WebhookDispatchTable.Handler;
+import com.community.tools.service.github.WebhookDispatchTable.Route;
 import com.community.tools.service.slack.SlackService;
 import com.community.tools.util.GithubAuthChecker;
-import com.github.seratch.jslack.api.methods.SlackApiException;
+import com.community.tools.util.IdDeduplicator;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
-import java.util.Date;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Optional;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import javax.annotation.PostConstruct;
+import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-import org.json.JSONException;
-import org.json.JSONObject;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
 
+@Slf4j
 @Service
 public class GitHubHookServlet extends HttpServlet {
 
+  private static final String PULL_REQUEST = "pull_request";
+  private static final String READY_FOR_REVIEW = "ready for review";
+  private static final String ADD_MENTOR = "addMentor";
+  private static final String UPDATE_COMPLETED_TASKS = "updateCompletedTasks";
+
+  /**
+   * Names of handlers, which give the same result when they run again for a webhook,
+   * that was handled already. Other handlers give tasks or notify and are never replayed.
+   */
+  public static final Set<String> REPLAYABLE_HANDLERS = Collections.unmodifiableSet(
+      new HashSet<>(Arrays.asList(ADD_MENTOR, UPDATE_COMPLETED_TASKS)));
+
   @Value("${git.check.label}")
   private String labeledStr;
   @Value("${git.check.new.req}")
   private String opened;
-  @Value("${spring.datasource.url}")
-  private String url;
-  @Value("${spring.datasource.username}")
-  private String username;
-  @Value("${spring.datasource.password}")
-  private String password;
   @Value("${GITHUB_SECRET_TOKEN}")
   private String secret;
+  @Value("${github.hook.max.body.bytes}")
+  private int maxBodyBytes;
   @Autowired
   private SlackService service;
   @Autowired
@@ -45,114 +63,169 @@ public class GitHubHookServlet extends HttpServlet {
   @Autowired
   private AddMentorService addMentorService;
   @Autowired
-  private StateMachineService stateMachineService;
+  private IdDeduplicator gitHubDeliveryDeduplicator;
+  @Autowired
+  private GitHookQueue hookQueue;
+  @Autowired
+  private GitHookDataWriter hookDataWriter;
+  @Autowired
+  private CountingCompletedTasksService completedTasksService;
 
-  @Override
-  protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+  @Autowired
+  private MeterRegistry meterRegistry;
 
-    StringBuilder builder = new StringBuilder();
-    String str = "";
+  private GithubAuthChecker authChecker;
+  private WebhookDispatchTable routes;
 
-    while ((str = req.getReader().readLine()) != null) {
-      builder.append(str);
+  /**
+   * Create the signature checker, shared by all requests.
+   * @throws ServletException if HMAC is not available
+   */
+  @Override
+  public void init() throws ServletException {
+    try {
+      authChecker = new GithubAuthChecker(secret);
+    } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+      throw new ServletException(e);
     }
-    JSONObject json = new JSONObject(builder.toString());
+  }
 
-    try {
-      if (new GithubAuthChecker(secret)
-          .checkSignature(req.getHeader("X-Hub-Signature"), builder.toString())) {
-
-        SingleConnectionDataSource connect = new SingleConnectionDataSource();
-        connect.setUrl(url);
-        connect.setUsername(username);
-        connect.setPassword(password);
-        JdbcTemplate jdbcTemplate = new JdbcTemplate(connect);
-        jdbcTemplate.update(
-            "INSERT INTO public.\"GitHookData\" (time, jsonb_data) VALUES ('" + new Date() + "','"
-                + json.toString().replace("'","''") + "'::jsonb);");
-        boolean actionExist = false;
-        try {
-          json.get("action");
-          actionExist = true;
-        } catch (JSONException ignored) {
-          ignored.getMessage();
-        }
-
-        if (actionExist) {
-          sendNotificationMessageAboutPR(json);
-          giveNewTaskIfPrOpened(json);
-          addMentorIfEventIsReview(json);
-        }
-      }
-    } catch (NoSuchAlgorithmException | InvalidKeyException | SlackApiException e) {
-      throw new RuntimeException(e);
+  /**
+   * Build the dispatch table of webhooks.
+   */
+  @PostConstruct
+  public void buildRoutes() {
+    Handler updateCompletedTasks = named(UPDATE_COMPLETED_TASKS, this::updateCompletedTasks);
+    routes = new WebhookDispatchTable(meterRegistry)
+        .route(PULL_REQUEST, opened, this::notifyAboutPullRequest, this::giveNewTask)
+        .route(PULL_REQUEST, labeledStr, this::notifyIfReadyForReview, updateCompletedTasks)
+        .route(PULL_REQUEST, "unlabeled", updateCompletedTasks)
+        .route(PULL_REQUEST, "closed", updateCompletedTasks)
+        .route(PULL_REQUEST, "reopened", updateCompletedTasks)
+        .route("pull_request_review", "submitted", named(ADD_MENTOR, this::addReviewer))
+        .accept("push");
+    for (String action : new String[] {"created", "edited", "deleted"}) {
+      routes.route("pull_request_review_comment", action,
+              named(ADD_MENTOR, this::addReviewCommenter))
+          .route("issue_comment", action, named(ADD_MENTOR, this::addIssueCommenter));
     }
+  }
 
+  /**
+   * Find handlers of the webhook, e.g. to replay a stored one.
+   * @param event value of X-GitHub-Event header
+   * @param action action of the payload, may be null
+   * @return route or null if the webhook has no handlers
+   */
+  public Route findRoute(String event, String action) {
+    return routes.find(event, action);
   }
 
+  @Override
+  protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+    String event = req.getHeader("X-GitHub-Event");
+    if (!routes.accepts(event)) {
+      resp.setStatus(HttpServletResponse.SC_NO_CONTENT);
+      return;
+    }
+    byte[] body = readBody(req);
+    if (body == null) {
+      resp.setStatus(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+      return;
+    }
+    String signature = req.getHeader("X-Hub-Signature-256");
+    if (signature == null) {
+      signature = req.getHeader("X-Hub-Signature");
+    }
+    if (!authChecker.checkSignature(signature, body)) {
+      resp.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+      return;
+    }
+    String deliveryId = req.getHeader("X-GitHub-Delivery");
+    if (!gitHubDeliveryDeduplicator.firstDelivery(deliveryId)) {
+      return;
+    }
+    GitHubWebhookPayload payload;
+    try {
+      payload = GitHubWebhookPayload.parse(body);
+    } catch (IOException e) {
+      resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+      return;
+    }
 
-  private void sendNotificationMessageAboutPR(JSONObject json)
-          throws IOException, SlackApiException {
-    if (json.get("action").toString().equals(opened) || checkForLabeled(json)) {
-      JSONObject pull = json.getJSONObject("pull_request");
-      String user = pull.getJSONObject("user").getString("login");
-      String url = pull.getJSONObject("_links").getJSONObject("html").getString("href");
-      if (addMentorService.doesMentorExist(user)) {
-        addMentorService.sendNotifyWithMentor(user, url);
-      } else {
-        service
-                .sendMessageToConversation("test_3", "User "
-                        + user + " create a pull request \n url: " + url);
+    String json = new String(body, StandardCharsets.UTF_8);
+    try {
+      hookQueue.enqueue(event, deliveryId, payload.getTrainee(), json);
+    } catch (DataAccessException e) {
+      log.error("Failed to queue webhook {}", deliveryId, e);
+      gitHubDeliveryDeduplicator.forget(deliveryId);
+      resp.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+      return;
+    }
+    hookDataWriter.write(event, json);
+    resp.setStatus(HttpServletResponse.SC_ACCEPTED);
+  }
 
+  /**
+   * Read raw bytes of the body once.
+   * @return body or null if it is larger than github.hook.max.body.bytes
+   */
+  private byte[] readBody(HttpServletRequest req) throws IOException {
+    long length = req.getContentLengthLong();
+    if (length > maxBodyBytes) {
+      return null;
+    }
+    ByteArrayOutputStream body = new ByteArrayOutputStream(length > 0 ? (int) length : 8192);
+    byte[] chunk = new byte[8192];
+    InputStream in = req.getInputStream();
+    for (int read = in.read(chunk); read != -1; read = in.read(chunk)) {
+      if (body.size() + read > maxBodyBytes) {
+        return null;
       }
+      body.write(chunk, 0, read);
     }
+    return body.toByteArray();
   }
 
-  private boolean checkForLabeled(JSONObject json) {
-    if (json.get("action").toString().equals(labeledStr)) {
-      List<Object> list = json.getJSONObject("pull_request").getJSONArray("labels").toList();
-      return list.stream().map(o -> (HashMap) o)
-          .anyMatch(e -> e.get("name").equals("ready for review"));
+  private void notifyAboutPullRequest(GitHubWebhookPayload payload) {
+    PullRequest pull = payload.getPullRequest();
+    String user = pull.getAuthor();
+    String url = pull.getHtmlUrl();
+    if (addMentorService.doesMentorExist(user)) {
+      addMentorService.sendNotifyWithMentor(user, url);
+    } else {
+      service
+              .sendMessageToConversationAsync("test_3", "User "
+                      + user + " create a pull request \n url: " + url);
+
     }
-    return false;
   }
 
-  private void addMentorIfEventIsReview(JSONObject json) {
-    if (json.get("action").equals("submitted") || checkComment(json)) {
-      String mentor;
-      String creator;
-      try {
-        mentor = json.getJSONObject("comment").getJSONObject("user").getString("login");
-      } catch (JSONException e) {
-        mentor = json.getJSONObject("review").getJSONObject("user").getString("login");
-      }
-      try {
-        creator = json.getJSONObject("pull_request").getJSONObject("user").getString("login");
-      } catch (JSONException e) {
-        creator = json.getJSONObject("issue").getJSONObject("user").getString("login");
-      }
+  private void notifyIfReadyForReview(GitHubWebhookPayload payload) {
+    if (payload.getPullRequest().hasLabel(READY_FOR_REVIEW)) {
+      notifyAboutPullRequest(payload);
+    }
+  }
 
+  private void addReviewer(GitHubWebhookPayload payload) {
+    addMentorService.addMentor(payload.getReviewAuthor(), payload.getPullRequest().getAuthor());
+  }
 
-      addMentorService.addMentor(mentor,creator);
-    }
+  private void addReviewCommenter(GitHubWebhookPayload payload) {
+    addMentorService.addMentor(payload.getCommentAuthor(), payload.getPullRequest().getAuthor());
   }
 
-  private boolean checkComment(JSONObject json) {
-    boolean checkComment = false;
-    try {
-      json.getJSONObject("comment");
-      checkComment = true;
-    } catch (JSONException ignored) {
-      ignored.getMessage();
-    }
-    return checkComment;
+  private void addIssueCommenter(GitHubWebhookPayload payload) {
+    addMentorService.addMentor(payload.getCommentAuthor(), payload.getIssueAuthor());
   }
 
-  private void giveNewTaskIfPrOpened(JSONObject json) {
-    if (json.get("action").toString().equals(opened)) {
-      String user = json.getJSONObject("sender").getString("login");
-      gitHubGiveNewTask.giveNewTask(user);
-    }
+  private void updateCompletedTasks(GitHubWebhookPayload payload) {
+    PullRequest pull = payload.getPullRequest();
+    completedTasksService.update(pull.getNumber(), pull.getAuthor(), pull.getTitle(),
+        pull.hasLabel(CountingCompletedTasksService.DONE) && "closed".equals(pull.getState()));
   }
-}
 
+  private void giveNewTask(GitHubWebhookPayload payload) {
+    gitHubGiveNewTask.giveNewTask(payload.getSenderLogin());
+  }
+}
@@ -0,0 +1,157 @@
+package com.community.tools.service.github;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tracks the rate limit of the GitHub token from X-RateLimit headers of responses.
+ * Interactive calls are never delayed. Batch calls go at full speed while more than half
+ * of the budget is left, then are spread over the time until reset, and stop when only
+ * the reserve for interactive calls is left.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Component
+public class GitHubRateLimitGovernor {
+
+  private static final ThreadLocal<Boolean> BATCH = ThreadLocal.withInitial(() -> false);
+
+  @Value("${github.rate.limit.interactive.reserve}")
+  private int interactiveReserve;
+
+  private final MeterRegistry meterRegistry;
+
+  private volatile RateLimit rateLimit;
+  private Counter throttled;
+
+  /**
+   * Register gauge of the budget and counter of throttled batch requests.
+   */
+  @PostConstruct
+  public void init() {
+    Gauge.builder("github.rate.limit.remaining", this, GitHubRateLimitGovernor::getRemaining)
+        .register(meterRegistry);
+    throttled = meterRegistry.counter("github.rate.limit.batch.throttled");
+  }
+
+  /**
+   * Run work with batch priority, so its requests to GitHub are throttled by the budget.
+   * @param work work, which sends requests to GitHub
+   * @param <T> type of result
+   * @param <E> type of exception
+   * @return result of work
+   * @throws E exception of work
+   */
+  public <T, E extends Exception> T batch(BatchWork<T, E> work) throws E {
+    Boolean outer = BATCH.get();
+    BATCH.set(true);
+    try {
+      return work.run();
+    } finally {
+      BATCH.set(outer);
+    }
+  }
+
+  /**
+   * Wait before the request of the current thread, if it is a batch one
+   * and the budget is running out.
+   * @throws IOException if the thread was interrupted while waiting
+   */
+  public void awaitTurn() throws IOException {
+    if (!BATCH.get()) {
+      return;
+    }
+    long delay = batchDelay(System.currentTimeMillis());
+    if (delay <= 0) {
+      return;
+    }
+    throttled.increment();
+    log.debug("Batch request to GitHub waits {} ms, {} requests left", delay, getRemaining());
+    try {
+      Thread.sleep(delay);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * Take the budget from headers of a GitHub response.
+   * @param limit value of X-RateLimit-Limit
+   * @param remaining value of X-RateLimit-Remaining
+   * @param reset value of X-RateLimit-Reset, epoch seconds
+   */
+  public void observe(String limit, String remaining, String reset) {
+    if (limit == null || remaining == null || reset == null) {
+      return;
+    }
+    try {
+      observe(Integer.parseInt(limit), Integer.parseInt(remaining),
+          TimeUnit.SECONDS.toMillis(Long.parseLong(reset)));
+    } catch (NumberFormatException e) {
+      log.warn("Invalid rate limit headers {}, {}, {}", limit, remaining, reset);
+    }
+  }
+
+  synchronized void observe(int limit, int remaining, long resetAt) {
+    RateLimit current = rateLimit;
+    if (current != null && current.resetAt == resetAt && current.remaining < remaining) {
+      // a response sent earlier in the same window came late
+      return;
+    }
+    if (current != null && current.resetAt > resetAt) {
+      return;
+    }
+    rateLimit = new RateLimit(limit, remaining, resetAt);
+  }
+
+  /**
+   * Get how many requests are left until reset.
+   * @return remaining requests or NaN before the first response
+   */
+  public double getRemaining() {
+    RateLimit current = rateLimit;
+    return current == null ? Double.NaN : current.remaining;
+  }
+
+  long batchDelay(long now) {
+    RateLimit current = rateLimit;
+    if (current == null || now >= current.resetAt) {
+      return 0;
+    }
+    long untilReset = current.resetAt - now;
+    int spare = current.remaining - interactiveReserve;
+    if (spare <= 0) {
+      return untilReset;
+    }
+    if (current.remaining * 2 > current.limit) {
+      return 0;
+    }
+    return untilReset / spare;
+  }
+
+  @FunctionalInterface
+  public interface BatchWork<T, E extends Exception> {
+    T run() throws E;
+  }
+
+  private static class RateLimit {
+    private final int limit;
+    private final int remaining;
+    private final long resetAt;
+
+    RateLimit(int limit, int remaining, long resetAt) {
+      this.limit = limit;
+      this.remaining = remaining;
+      this.resetAt = resetAt;
+    }
+  }
+}
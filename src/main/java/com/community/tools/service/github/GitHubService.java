@@ -9,6 +9,7 @@ import static org.kohsuke.github.GHIssueState.CLOSED;
 
 import com.community.tools.model.EventData;
 import java.io.IOException;
+import java.net.HttpURLConnection;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Date;
@@ -17,31 +18,41 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
 import lombok.RequiredArgsConstructor;
+import org.kohsuke.github.GHDirection;
 import org.kohsuke.github.GHIssueState;
 import org.kohsuke.github.GHPullRequest;
 import org.kohsuke.github.GHPullRequestCommitDetail;
+import org.kohsuke.github.GHPullRequestQueryBuilder.Sort;
 import org.kohsuke.github.GHPullRequestReviewComment;
 import org.kohsuke.github.GHRepository;
 import org.kohsuke.github.GHUser;
-import org.kohsuke.github.PagedIterable;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 @RequiredArgsConstructor
 @Service
 public class GitHubService {
 
+  public static final int MAX_PAGE_SIZE = 100;
+
+  @Value("${github.repository}")
+  private String nameRepository;
+
   private final GitHubConnectService service;
+  private final GitHubEventStore eventStore;
+  private final GitHubFetchEngine fetchEngine;
 
   /**
    * Get GitHub pull requests according to state.
+   * For pages of all pull requests with labels use openPullRequests.
    * @param statePullRequest state of pull. T - open, F - closed
-   * @return Map of GH login trainee as a key, title of pull as value
+   * @return Map of GH login trainee as a key, titles of all their pulls as value
    */
-  public Map<String, String> getPullRequests(boolean statePullRequest) {
-    Map<String, String> listUsers = new HashMap<>();
-    try {
-      GHRepository repository = service.getGitHubRepository();
+  public Map<String, List<String>> getPullRequests(boolean statePullRequest) {
+    return service.execute(repository -> {
+      Map<String, List<String>> listUsers = new HashMap<>();
       List<GHPullRequest> pullRequests;
       if (!statePullRequest) {
         pullRequests = repository.getPullRequests(GHIssueState.CLOSED);
@@ -52,28 +63,76 @@ public class GitHubService {
       for (GHPullRequest repo : pullRequests) {
         String login = repo.getUser().getLogin();
         String title = repo.getTitle();
-        listUsers.put(login, title);
+        listUsers.computeIfAbsent(login, key -> new ArrayList<>()).add(title);
       }
-    } catch (IOException e) {
-      throw new RuntimeException(e);
+      return listUsers;
+    });
+  }
+
+  /**
+   * Open one page of pull requests, newest first. Cursor is the number of the page on GitHub,
+   * so the page is passed through from GitHub as it is read, and revisited pages
+   * are revalidated by the HTTP cache.
+   * @param state state of pull requests
+   * @param cursor cursor from the previous page or null for the first page
+   * @param limit number of pull requests on the page, from 1 to 100
+   * @return page to write
+   * @throws IllegalArgumentException if cursor or limit is invalid
+   */
+  public PullRequestPage openPullRequests(GHIssueState state, String cursor, int limit) {
+    if (limit < 1 || limit > MAX_PAGE_SIZE) {
+      throw new IllegalArgumentException("Limit must be from 1 to " + MAX_PAGE_SIZE);
     }
-    return listUsers;
+    int page = cursor == null ? 1 : parseCursor(cursor);
+    HttpURLConnection connection = service.open("/repos/" + nameRepository + "/pulls?state="
+        + state.name().toLowerCase() + "&sort=created&direction=desc&per_page=" + limit
+        + "&page=" + page);
+    String link = connection.getHeaderField("Link");
+    boolean hasNext = link != null && link.contains("rel=\"next\"");
+    return new PullRequestPage(connection, hasNext ? String.valueOf(page + 1) : null);
+  }
+
+  private static int parseCursor(String cursor) {
+    try {
+      int page = Integer.parseInt(cursor);
+      if (page > 0) {
+        return page;
+      }
+    } catch (NumberFormatException e) {
+      // reported below
+    }
+    throw new IllegalArgumentException("Invalid cursor " + cursor);
   }
 
   /**
-   * Get all events by the date interval.
+   * Get all events by the date interval. Events are read from the event store,
+   * if it covers the interval, otherwise pull requests are crawled on GitHub.
+   * The crawl reads pull requests from the most recently updated one
+   * and stops at the first one, which was not updated since startDate.
    * @param startDate startDate
    * @param endDate endDate
    * @return list of EventData by the date interval
    */
   public List<EventData> getEvents(Date startDate, Date endDate) {
-    try {
-      GHRepository repository = service.getGitHubRepository();
+    if (eventStore.covers(startDate)) {
+      return eventStore.findEvents(startDate, endDate);
+    }
+    return service.execute(repository -> {
       Set<EventData> listEvents = new TreeSet<>(comparing(EventData::getCreatedAt));
 
-      List<GHPullRequest> pullRequests = repository.getPullRequests(GHIssueState.ALL);
+      List<GHPullRequest> pullRequests = fetchEngine.pagesWhile(repository.queryPullRequests()
+              .state(GHIssueState.ALL)
+              .sort(Sort.UPDATED)
+              .direction(GHDirection.DESC)
+              .list(),
+          pullRequest -> !pullRequest.getUpdatedAt().before(startDate));
+      List<Callable<List<EventData>>> fetches = new ArrayList<>();
       for (GHPullRequest pullRequest : pullRequests) {
         Date createdAt = pullRequest.getCreatedAt();
+        if (!createdAt.before(endDate)) {
+          // opened after the interval, so nothing in it belongs to the interval
+          continue;
+        }
         Date closedAt = pullRequest.getClosedAt();
         String actorPullRequest = pullRequest.getUser().getLogin();
         GHIssueState state = pullRequest.getState();
@@ -85,32 +144,43 @@ public class GitHubService {
           listEvents.add(new EventData(createdAt, actorPullRequest, PULL_REQUEST_CREATED));
         }
 
-        PagedIterable<GHPullRequestReviewComment> comments = pullRequest.listReviewComments();
-        for (GHPullRequestReviewComment comment : comments) {
-          Date commentCreatedAt = comment.getCreatedAt();
-          String loginComment = comment.getUser().getLogin();
-          boolean periodComment =
-              commentCreatedAt.after(startDate) && commentCreatedAt.before(endDate);
-          if (periodComment) {
-            listEvents.add(new EventData(commentCreatedAt, loginComment, COMMENT));
-          }
-        }
+        fetches.add(() -> commentsOf(pullRequest, startDate, endDate));
+        fetches.add(() -> commitsOf(pullRequest, actorPullRequest, startDate, endDate));
+      }
+      listEvents.addAll(fetchEngine.fetchAll(fetches));
 
-        PagedIterable<GHPullRequestCommitDetail> commits = pullRequest.listCommits();
-        for (GHPullRequestCommitDetail commit : commits) {
-          Date dateCommit = commit.getCommit().getAuthor().getDate();
+      return new ArrayList<>(listEvents);
+    });
+  }
 
-          boolean periodCommit = dateCommit.after(startDate) && dateCommit.before(endDate);
-          if (periodCommit) {
-            listEvents.add(new EventData(dateCommit, actorPullRequest, COMMIT));
-          }
-        }
+  private List<EventData> commentsOf(GHPullRequest pullRequest, Date startDate, Date endDate)
+      throws IOException {
+    List<EventData> events = new ArrayList<>();
+    for (GHPullRequestReviewComment comment : fetchEngine.pages(
+        pullRequest.listReviewComments())) {
+      Date commentCreatedAt = comment.getCreatedAt();
+      String loginComment = comment.getUser().getLogin();
+      boolean periodComment =
+          commentCreatedAt.after(startDate) && commentCreatedAt.before(endDate);
+      if (periodComment) {
+        events.add(new EventData(commentCreatedAt, loginComment, COMMENT));
       }
+    }
+    return events;
+  }
 
-      return new ArrayList<>(listEvents);
-    } catch (IOException e) {
-      throw new RuntimeException(e);
+  private List<EventData> commitsOf(GHPullRequest pullRequest, String actorPullRequest,
+      Date startDate, Date endDate) throws IOException {
+    List<EventData> events = new ArrayList<>();
+    for (GHPullRequestCommitDetail commit : fetchEngine.pages(pullRequest.listCommits())) {
+      Date dateCommit = commit.getCommit().getAuthor().getDate();
+
+      boolean periodCommit = dateCommit.after(startDate) && dateCommit.before(endDate);
+      if (periodCommit) {
+        events.add(new EventData(dateCommit, actorPullRequest, COMMIT));
+      }
     }
+    return events;
   }
 
   /**
@@ -118,11 +188,6 @@ public class GitHubService {
    * @return Set of GH Users
    */
   public Set<GHUser> getGitHubAllUsers() {
-    try {
-      GHRepository repository = service.getGitHubRepository();
-      return repository.getCollaborators();
-    } catch (IOException e) {
-      throw new RuntimeException(e);
-    }
+    return service.execute(GHRepository::getCollaborators);
   }
 }
@@ -0,0 +1,226 @@
+package com.community.tools.service.github;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Getter;
+
+/**
+ * Fields of a GitHub webhook, which the application uses. They are pulled from the body
+ * in one streaming pass, everything else is skipped without building a tree.
+ */
+@Getter
+public class GitHubWebhookPayload {
+
+  private static final JsonFactory JSON = new JsonFactory();
+
+  private String action;
+  private String senderLogin;
+  private PullRequest pullRequest;
+  private String issueAuthor;
+  private String commentAuthor;
+  private String commentCreatedAt;
+  private String reviewAuthor;
+  private String before;
+  private String after;
+
+  private GitHubWebhookPayload() {
+  }
+
+  /**
+   * Extract fields from the body of a webhook.
+   * @param body raw body
+   * @return payload
+   * @throws IOException if body is not a JSON object
+   */
+  public static GitHubWebhookPayload parse(byte[] body) throws IOException {
+    GitHubWebhookPayload payload = new GitHubWebhookPayload();
+    try (JsonParser parser = JSON.createParser(body)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new IOException("Webhook payload is not a JSON object");
+      }
+      readObject(parser, payload::readField);
+    }
+    return payload;
+  }
+
+  /**
+   * Get GitHub login of trainee, whose state machine the event may change.
+   * @return author of pull request or issue, otherwise sender
+   */
+  public String getTrainee() {
+    if (pullRequest != null) {
+      return pullRequest.author;
+    }
+    return issueAuthor != null ? issueAuthor : senderLogin;
+  }
+
+  private void readField(String field, JsonParser parser) throws IOException {
+    switch (field) {
+      case "action":
+        action = parser.getValueAsString();
+        break;
+      case "sender":
+        senderLogin = stringField(parser, "login");
+        break;
+      case "pull_request":
+        pullRequest = new PullRequest();
+        readObject(parser, pullRequest::readField);
+        break;
+      case "issue":
+        issueAuthor = userOf(parser);
+        break;
+      case "comment":
+        readObject(parser, (name, value) -> {
+          if ("user".equals(name)) {
+            commentAuthor = stringField(value, "login");
+          } else if ("created_at".equals(name)) {
+            commentCreatedAt = value.getValueAsString();
+          } else {
+            value.skipChildren();
+          }
+        });
+        break;
+      case "review":
+        reviewAuthor = userOf(parser);
+        break;
+      case "before":
+        before = parser.getValueAsString();
+        break;
+      case "after":
+        after = parser.getValueAsString();
+        break;
+      default:
+        parser.skipChildren();
+        break;
+    }
+  }
+
+  private static String userOf(JsonParser parser) throws IOException {
+    String[] login = new String[1];
+    readObject(parser, (name, value) -> {
+      if ("user".equals(name)) {
+        login[0] = stringField(value, "login");
+      } else {
+        value.skipChildren();
+      }
+    });
+    return login[0];
+  }
+
+  private static String stringField(JsonParser parser, String name) throws IOException {
+    String[] result = new String[1];
+    readObject(parser, (field, value) -> {
+      if (name.equals(field)) {
+        result[0] = value.getValueAsString();
+      } else {
+        value.skipChildren();
+      }
+    });
+    return result[0];
+  }
+
+  /**
+   * Read fields of the object at the current token, skip the value if it is not an object.
+   */
+  private static void readObject(JsonParser parser, FieldReader reader) throws IOException {
+    if (parser.currentToken() != JsonToken.START_OBJECT) {
+      parser.skipChildren();
+      return;
+    }
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      parser.nextToken();
+      reader.read(field, parser);
+    }
+  }
+
+  /**
+   * Read items of the array at the current token, skip the value if it is not an array.
+   */
+  private static void readArray(JsonParser parser, ItemReader reader) throws IOException {
+    if (parser.currentToken() != JsonToken.START_ARRAY) {
+      parser.skipChildren();
+      return;
+    }
+    while (parser.nextToken() != JsonToken.END_ARRAY) {
+      reader.read(parser);
+    }
+  }
+
+  @FunctionalInterface
+  private interface FieldReader {
+    void read(String field, JsonParser parser) throws IOException;
+  }
+
+  @FunctionalInterface
+  private interface ItemReader {
+    void read(JsonParser parser) throws IOException;
+  }
+
+  @Getter
+  public static class PullRequest {
+    private int number;
+    private String title;
+    private String state;
+    private String author;
+    private String htmlUrl;
+    private List<String> labels = new ArrayList<>();
+    private String createdAt;
+    private String closedAt;
+    private String updatedAt;
+
+    /**
+     * Check that the pull request has the label.
+     * @param name name of label
+     * @return true if label is set
+     */
+    public boolean hasLabel(String name) {
+      return labels.contains(name);
+    }
+
+    private void readField(String field, JsonParser parser) throws IOException {
+      switch (field) {
+        case "number":
+          number = parser.getValueAsInt();
+          break;
+        case "title":
+          title = parser.getValueAsString();
+          break;
+        case "state":
+          state = parser.getValueAsString();
+          break;
+        case "user":
+          author = stringField(parser, "login");
+          break;
+        case "_links":
+          readObject(parser, (name, value) -> {
+            if ("html".equals(name)) {
+              htmlUrl = stringField(value, "href");
+            } else {
+              value.skipChildren();
+            }
+          });
+          break;
+        case "labels":
+          readArray(parser, item -> labels.add(stringField(item, "name")));
+          break;
+        case "created_at":
+          createdAt = parser.getValueAsString();
+          break;
+        case "closed_at":
+          closedAt = parser.getValueAsString();
+          break;
+        case "updated_at":
+          updatedAt = parser.getValueAsString();
+          break;
+        default:
+          parser.skipChildren();
+          break;
+      }
+    }
+  }
+}
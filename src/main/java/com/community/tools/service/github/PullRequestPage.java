@@ -0,0 +1,129 @@
+package com.community.tools.service.github;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One page of pull requests, opened on GitHub and not read yet.
+ * Writing the page copies number, author, title and labels of every pull request
+ * from the GitHub response to the output while both are streamed.
+ */
+public class PullRequestPage {
+
+  private static final JsonFactory JSON = new JsonFactory()
+      .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+  private final HttpURLConnection connection;
+  private final String nextCursor;
+
+  PullRequestPage(HttpURLConnection connection, String nextCursor) {
+    this.connection = connection;
+    this.nextCursor = nextCursor;
+  }
+
+  /**
+   * Get cursor of the next page.
+   * @return cursor or null if this page is the last one
+   */
+  public String getNextCursor() {
+    return nextCursor;
+  }
+
+  /**
+   * Write the page as {"items": [{number, author, title, labels}], "nextCursor": cursor}
+   * and close the GitHub response.
+   * @param out output
+   * @throws IOException IOException
+   */
+  public void writeTo(OutputStream out) throws IOException {
+    try (InputStream in = connection.getInputStream()) {
+      transfer(in, out, nextCursor);
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+  static void transfer(InputStream in, OutputStream out, String nextCursor)
+      throws IOException {
+    try (JsonParser parser = JSON.createParser(in);
+        JsonGenerator generator = JSON.createGenerator(out)) {
+      if (parser.nextToken() != JsonToken.START_ARRAY) {
+        throw new IOException("GitHub answered with no list of pull requests");
+      }
+      generator.writeStartObject();
+      generator.writeArrayFieldStart("items");
+      while (parser.nextToken() == JsonToken.START_OBJECT) {
+        writePullRequest(parser, generator);
+      }
+      generator.writeEndArray();
+      generator.writeStringField("nextCursor", nextCursor);
+      generator.writeEndObject();
+    }
+  }
+
+  private static void writePullRequest(JsonParser parser, JsonGenerator generator)
+      throws IOException {
+    long number = 0;
+    String title = null;
+    String author = null;
+    List<String> labels = new ArrayList<>();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      parser.nextToken();
+      switch (field) {
+        case "number":
+          number = parser.getLongValue();
+          break;
+        case "title":
+          title = parser.getValueAsString();
+          break;
+        case "user":
+          author = stringField(parser, "login");
+          break;
+        case "labels":
+          while (parser.nextToken() == JsonToken.START_OBJECT) {
+            labels.add(stringField(parser, "name"));
+          }
+          break;
+        default:
+          parser.skipChildren();
+          break;
+      }
+    }
+    generator.writeStartObject();
+    generator.writeNumberField("number", number);
+    generator.writeStringField("author", author);
+    generator.writeStringField("title", title);
+    generator.writeArrayFieldStart("labels");
+    for (String label : labels) {
+      generator.writeString(label);
+    }
+    generator.writeEndArray();
+    generator.writeEndObject();
+  }
+
+  private static String stringField(JsonParser parser, String name) throws IOException {
+    if (parser.currentToken() != JsonToken.START_OBJECT) {
+      return null;
+    }
+    String value = null;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      parser.nextToken();
+      if (name.equals(field)) {
+        value = parser.getValueAsString();
+      } else {
+        parser.skipChildren();
+      }
+    }
+    return value;
+  }
+}
@@ -0,0 +1,71 @@
+package com.community.tools.service.github;
+
+import com.community.tools.service.github.GitHookReplayService.Mode;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts of a replay of stored webhooks. Updated from all lanes of the replay.
+ */
+public class ReplayReport {
+
+  private final Mode mode;
+  private final LongAdder rows = new LongAdder();
+  private final LongAdder unrouted = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final Map<String, LongAdder> routes = new ConcurrentHashMap<>();
+
+  ReplayReport(Mode mode) {
+    this.mode = mode;
+  }
+
+  void read() {
+    rows.increment();
+  }
+
+  void unrouted() {
+    unrouted.increment();
+  }
+
+  void failed() {
+    failed.increment();
+  }
+
+  void routed(String route) {
+    routes.computeIfAbsent(route, key -> new LongAdder()).increment();
+  }
+
+  public Mode getMode() {
+    return mode;
+  }
+
+  public long getRows() {
+    return rows.sum();
+  }
+
+  public long getUnrouted() {
+    return unrouted.sum();
+  }
+
+  public long getFailed() {
+    return failed.sum();
+  }
+
+  /**
+   * Get number of webhooks, which were handled, or would be in dry run, by route.
+   * @return map with key - route "event:action" and value - number of webhooks
+   */
+  public Map<String, Long> getRoutes() {
+    Map<String, Long> counts = new TreeMap<>();
+    routes.forEach((route, count) -> counts.put(route, count.sum()));
+    return counts;
+  }
+
+  @Override
+  public String toString() {
+    return mode + " rows=" + getRows() + ", unrouted=" + getUnrouted()
+        + ", failed=" + getFailed() + ", routes=" + getRoutes();
+  }
+}
@@ -0,0 +1,156 @@
+package com.community.tools.service.github;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Dispatch table of GitHub webhooks, keyed by X-GitHub-Event and action of the payload.
+ * Built once at startup, so events without a route are known before the body is parsed.
+ */
+public class WebhookDispatchTable {
+
+  private final MeterRegistry meterRegistry;
+  private final Map<String, Route> routes = new HashMap<>();
+  private final Set<String> events = new HashSet<>();
+
+  public WebhookDispatchTable(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  /**
+   * Accept the event, though it has no handlers, e.g. to store it.
+   * @param event value of X-GitHub-Event header
+   * @return this table
+   */
+  public WebhookDispatchTable accept(String event) {
+    events.add(event);
+    return this;
+  }
+
+  /**
+   * Add route of the event and action.
+   * @param event value of X-GitHub-Event header
+   * @param action action of the payload
+   * @param handlers handlers, which run in the given order
+   * @return this table
+   */
+  public WebhookDispatchTable route(String event, String action, Handler... handlers) {
+    String key = event + ":" + action;
+    Timer timer = meterRegistry.timer("github.webhook.route", "route", key);
+    if (routes.putIfAbsent(key, new Route(Arrays.asList(handlers), timer)) != null) {
+      throw new IllegalStateException("Route " + key + " is already added");
+    }
+    events.add(event);
+    return this;
+  }
+
+  /**
+   * Check that the event has a route or is accepted, otherwise count it as unrouted.
+   * @param event value of X-GitHub-Event header, may be null
+   * @return true if the payload of the event is needed
+   */
+  public boolean accepts(String event) {
+    if (event != null && events.contains(event)) {
+      return true;
+    }
+    meterRegistry.counter("github.webhook.unrouted",
+        "event", event == null ? "none" : event).increment();
+    return false;
+  }
+
+  /**
+   * Find route of the event and action.
+   * @param event value of X-GitHub-Event header
+   * @param action action of the payload, may be null
+   * @return route or null if the pair has no handlers
+   */
+  public Route find(String event, String action) {
+    return routes.get(event + ":" + action);
+  }
+
+  /**
+   * Name the handler, so it can be chosen to run alone, e.g. by a replay.
+   * @param name name of handler
+   * @param handler handler
+   * @return named handler
+   */
+  public static Handler named(String name, Handler handler) {
+    return new NamedHandler(name, handler);
+  }
+
+  @FunctionalInterface
+  public interface Handler {
+    void handle(GitHubWebhookPayload payload);
+  }
+
+  public static class Route {
+    private final List<Handler> handlers;
+    private final Timer timer;
+
+    Route(List<Handler> handlers, Timer timer) {
+      this.handlers = handlers;
+      this.timer = timer;
+    }
+
+    /**
+     * Run handlers of the route, recording their latency.
+     * @param payload payload of the webhook
+     */
+    public void handle(GitHubWebhookPayload payload) {
+      handle(payload, new AtomicInteger());
+    }
+
+    /**
+     * Run handlers of the route, skipping the ones, which already succeeded,
+     * e.g. on a retry. Recording their latency.
+     * @param payload payload of the webhook
+     * @param handled number of handlers, which already succeeded,
+     *     incremented after every handler that succeeds
+     */
+    public void handle(GitHubWebhookPayload payload, AtomicInteger handled) {
+      timer.record(() -> {
+        for (int i = handled.get(); i < handlers.size(); i++) {
+          handlers.get(i).handle(payload);
+          handled.incrementAndGet();
+        }
+      });
+    }
+
+    /**
+     * Get route, which runs only the named handlers of this one, e.g. for a replay.
+     * @param names names of handlers
+     * @param timer timer of the new route, so it does not skew latency of live webhooks
+     * @return route or null if this one has none of the handlers
+     */
+    public Route only(Set<String> names, Timer timer) {
+      List<Handler> selected = handlers.stream()
+          .filter(handler -> handler instanceof NamedHandler
+              && names.contains(((NamedHandler) handler).name))
+          .collect(Collectors.toList());
+      return selected.isEmpty() ? null : new Route(selected, timer);
+    }
+  }
+
+  private static class NamedHandler implements Handler {
+    private final String name;
+    private final Handler handler;
+
+    NamedHandler(String name, Handler handler) {
+      this.name = name;
+      this.handler = handler;
+    }
+
+    @Override
+    public void handle(GitHubWebhookPayload payload) {
+      handler.handle(payload);
+    }
+  }
+}
@@ -0,0 +1,42 @@
+package com.community.tools.service.github.jpa;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+@Entity
+@Table(name = "completed_tasks")
+public class CompletedTask {
+
+  @Id
+  private Integer pullNumber;
+  private String gitNick;
+  private String title;
+
+  public CompletedTask() {
+  }
+
+  /**
+   * Constructor of CompletedTask.
+   * @param pullNumber number of pull request with the task
+   * @param gitNick GitHub login of trainee
+   * @param title title of pull request
+   */
+  public CompletedTask(Integer pullNumber, String gitNick, String title) {
+    this.pullNumber = pullNumber;
+    this.gitNick = gitNick;
+    this.title = title;
+  }
+
+  public Integer getPullNumber() {
+    return pullNumber;
+  }
+
+  public String getGitNick() {
+    return gitNick;
+  }
+
+  public String getTitle() {
+    return title;
+  }
+}
@@ -0,0 +1,8 @@
+package com.community.tools.service.github.jpa;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CompletedTaskRepository extends JpaRepository<CompletedTask, Integer> {
+}
@@ -0,0 +1,161 @@
+package com.community.tools.service.slack;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Block Kit message, which is parsed and validated once. Placeholders like {{task}}
+ * are filled on render, so sending costs only a fill of a presized buffer.
+ */
+public final class MessageTemplate {
+
+  private static final Pattern PLACEHOLDER = Pattern.compile("\\{\\{(\\w+)}}");
+  private static final TypeAdapter<JsonElement> STRICT_JSON = new Gson()
+      .getAdapter(JsonElement.class);
+
+  private final String name;
+  private final String[] literals;
+  private final Placeholder[] slots;
+  private final int literalsLength;
+
+  private MessageTemplate(String name, List<String> literals, List<Placeholder> slots) {
+    this.name = name;
+    this.literals = literals.toArray(new String[0]);
+    this.slots = slots.toArray(new Placeholder[0]);
+    this.literalsLength = literals.stream().mapToInt(String::length).sum();
+  }
+
+  /**
+   * Parse and validate Block Kit JSON.
+   * @param name name of template, used in errors
+   * @param json JSON array of blocks with placeholders inside string values
+   * @return MessageTemplate
+   * @throws IllegalArgumentException if JSON is invalid or placeholder is unknown
+   */
+  public static MessageTemplate compile(String name, String json) {
+    List<String> literals = new ArrayList<>();
+    List<Placeholder> slots = new ArrayList<>();
+    Matcher matcher = PLACEHOLDER.matcher(json);
+    int start = 0;
+    while (matcher.find()) {
+      literals.add(json.substring(start, matcher.start()));
+      slots.add(Placeholder.byKey(name, matcher.group(1)));
+      start = matcher.end();
+    }
+    literals.add(json.substring(start));
+
+    MessageTemplate template = new MessageTemplate(name, literals, slots);
+    Map<Placeholder, String> sample = new EnumMap<>(Placeholder.class);
+    for (Placeholder placeholder : Placeholder.values()) {
+      sample.put(placeholder, "\"sample\"");
+    }
+    try {
+      if (!STRICT_JSON.fromJson(template.render(sample)).isJsonArray()) {
+        throw new IllegalArgumentException("Template " + name + " is not an array of blocks");
+      }
+    } catch (IOException | JsonParseException e) {
+      throw new IllegalArgumentException("Template " + name + " is not valid JSON", e);
+    }
+    return template;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Render template without placeholders.
+   * @return Block Kit JSON
+   */
+  public String render() {
+    return render(Collections.emptyMap());
+  }
+
+  /**
+   * Render template with values of placeholders. Values are escaped for JSON.
+   * @param values values of placeholders
+   * @return Block Kit JSON
+   * @throws IllegalArgumentException if value of used placeholder is missing
+   */
+  public String render(Map<Placeholder, String> values) {
+    if (slots.length == 0) {
+      return literals[0];
+    }
+    StringBuilder builder = new StringBuilder(literalsLength + slots.length * 32);
+    for (int i = 0; i < slots.length; i++) {
+      builder.append(literals[i]);
+      String value = values.get(slots[i]);
+      if (value == null) {
+        throw new IllegalArgumentException(
+            "No value of " + slots[i].key + " for template " + name);
+      }
+      slots[i].append(builder, value);
+    }
+    return builder.append(literals[slots.length]).toString();
+  }
+
+  public enum Placeholder {
+    /** Name of task, as it is in path of repository. */
+    TASK("task"),
+    /** Slack`s userId, rendered as mention. */
+    USER("user") {
+      @Override
+      void append(StringBuilder builder, String value) {
+        builder.append("<@");
+        super.append(builder, value);
+        builder.append('>');
+      }
+    },
+    /** Link. */
+    URL("url");
+
+    private final String key;
+
+    Placeholder(String key) {
+      this.key = key;
+    }
+
+    void append(StringBuilder builder, String value) {
+      for (int i = 0; i < value.length(); i++) {
+        char c = value.charAt(i);
+        switch (c) {
+          case '"':
+            builder.append("\\\"");
+            break;
+          case '\\':
+            builder.append("\\\\");
+            break;
+          case '\n':
+            builder.append("\\n");
+            break;
+          default:
+            if (c < ' ') {
+              builder.append(String.format("\\u%04x", (int) c));
+            } else {
+              builder.append(c);
+            }
+        }
+      }
+    }
+
+    private static Placeholder byKey(String template, String key) {
+      for (Placeholder placeholder : values()) {
+        if (placeholder.key.equals(key)) {
+          return placeholder;
+        }
+      }
+      throw new IllegalArgumentException(
+          "Unknown placeholder {{" + key + "}} in template " + template);
+    }
+  }
+}
@@ -0,0 +1,48 @@
+package com.community.tools.service.slack;
+
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Block Kit messages from properties, compiled at startup,
+ * so a broken message fails the start instead of a send.
+ */
+@Component
+@RequiredArgsConstructor
+public class MessageTemplates {
+
+  @Value("${slack.templates}")
+  private String[] names;
+
+  private final Environment environment;
+
+  private final Map<String, MessageTemplate> templates = new HashMap<>();
+
+  /**
+   * Compile all templates listed in "slack.templates".
+   */
+  @PostConstruct
+  public void compile() {
+    for (String name : names) {
+      templates.put(name, MessageTemplate.compile(name, environment.getRequiredProperty(name)));
+    }
+  }
+
+  /**
+   * Get template by name of its property.
+   * @param name name of property, e.g. "getFirstTask"
+   * @return MessageTemplate
+   */
+  public MessageTemplate get(String name) {
+    MessageTemplate template = templates.get(name);
+    if (template == null) {
+      throw new IllegalArgumentException("Unknown message template " + name);
+    }
+    return template;
+  }
+}
@@ -0,0 +1,151 @@
+package com.community.tools.service.slack;
+
+import com.github.seratch.jslack.api.methods.MethodsClient;
+import com.github.seratch.jslack.api.methods.SlackApiException;
+import com.github.seratch.jslack.api.methods.response.conversations.ConversationsListResponse;
+import com.github.seratch.jslack.api.model.Conversation;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SlackChannelRegistry {
+
+  @Value("${slack.channels.page.size}")
+  private int pageSize;
+  @Value("${slack.channels.miss.refresh.millis}")
+  private long missRefreshMillis;
+
+  private final MethodsClient slackMethods;
+
+  private volatile Channels channels;
+
+  /**
+   * Resolve channel id by its name.
+   * @param channelName name of channel, e.g. "general"
+   * @return id of channel, if present
+   */
+  public Optional<String> resolve(String channelName) {
+    Channels current = channels();
+    String id = current.idByName.get(channelName);
+    if (id == null && System.currentTimeMillis() - current.loadedAt > missRefreshMillis) {
+      // channel may have been created before we subscribed to its events
+      id = reload(current).idByName.get(channelName);
+    }
+    return Optional.ofNullable(id);
+  }
+
+  /**
+   * Drop the cached id and resolve channel again from Slack.
+   * Used when Slack answers channel_not_found for the cached id.
+   * @param channelName name of channel
+   * @return id of channel, if present
+   */
+  public Optional<String> reresolve(String channelName) {
+    Channels current = channels();
+    String stale = current.idByName.get(channelName);
+    if (stale != null) {
+      current.remove(stale);
+    }
+    return Optional.ofNullable(reload(current).idByName.get(channelName));
+  }
+
+  /**
+   * Register new or renamed channel.
+   * @param id id of channel
+   * @param name current name of channel
+   */
+  public void put(String id, String name) {
+    Channels current = channels;
+    if (current != null) {
+      current.put(id, name);
+    }
+  }
+
+  /**
+   * Forget archived or deleted channel.
+   * @param id id of channel
+   */
+  public void remove(String id) {
+    Channels current = channels;
+    if (current != null) {
+      current.remove(id);
+    }
+  }
+
+  /**
+   * Reload all channels from Slack to reconcile missed events.
+   */
+  @Scheduled(fixedDelayString = "${slack.channels.refresh.millis}",
+      initialDelayString = "${slack.channels.refresh.millis}")
+  public void refresh() {
+    try {
+      reload(channels);
+    } catch (RuntimeException e) {
+      log.warn("Failed to refresh Slack channels, keeping previous registry", e);
+    }
+  }
+
+  private Channels channels() {
+    Channels current = channels;
+    return current != null ? current : reload(null);
+  }
+
+  private synchronized Channels reload(Channels seen) {
+    if (channels != seen) {
+      // already reloaded by another thread while this one was waiting
+      return channels;
+    }
+    Channels loaded = new Channels();
+    String cursor = null;
+    try {
+      do {
+        String page = cursor;
+        ConversationsListResponse response = slackMethods.conversationsList(req -> req
+            .excludeArchived(true).limit(pageSize).cursor(page));
+        if (!response.isOk()) {
+          throw new IllegalStateException("conversations.list failed: " + response.getError());
+        }
+        for (Conversation conversation : response.getChannels()) {
+          loaded.idByName.putIfAbsent(conversation.getName(), conversation.getId());
+          loaded.nameById.putIfAbsent(conversation.getId(), conversation.getName());
+        }
+        cursor = response.getResponseMetadata() == null
+            ? null : response.getResponseMetadata().getNextCursor();
+      } while (cursor != null && !cursor.isEmpty());
+    } catch (IOException | SlackApiException e) {
+      throw new RuntimeException(e);
+    }
+    channels = loaded;
+    return loaded;
+  }
+
+  private static class Channels {
+    private final Map<String, String> idByName = new ConcurrentHashMap<>();
+    private final Map<String, String> nameById = new ConcurrentHashMap<>();
+    private final long loadedAt = System.currentTimeMillis();
+
+    void put(String id, String name) {
+      String previous = nameById.put(id, name);
+      if (previous != null) {
+        idByName.remove(previous, id);
+      }
+      idByName.put(name, id);
+    }
+
+    void remove(String id) {
+      String name = nameById.remove(id);
+      if (name != null) {
+        idByName.remove(name, id);
+      }
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package com.community.tools.service.slack;
+
+import com.community.tools.util.IdDeduplicator;
+import com.github.seratch.jslack.Slack;
+import com.github.seratch.jslack.api.methods.MethodsClient;
+import com.github.seratch.jslack.common.http.SlackHttpClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import okhttp3.ConnectionPool;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@Configuration
+public class SlackClientConfig {
+
+  @Value("${slack.token}")
+  private String token;
+  @Value("${slack.http.connect.timeout.millis}")
+  private long connectTimeoutMillis;
+  @Value("${slack.http.read.timeout.millis}")
+  private long readTimeoutMillis;
+  @Value("${slack.http.pool.max.idle}")
+  private int maxIdleConnections;
+  @Value("${slack.http.pool.keep.alive.millis}")
+  private long keepAliveMillis;
+
+  /**
+   * One HTTP client for every Slack call, so connections and TLS sessions are reused.
+   * @param meterRegistry registry for latency of calls
+   * @return OkHttpClient
+   */
+  @Bean
+  public OkHttpClient slackHttpClient(MeterRegistry meterRegistry) {
+    return new OkHttpClient.Builder()
+        .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveMillis,
+            TimeUnit.MILLISECONDS))
+        .connectTimeout(connectTimeoutMillis, TimeUnit.MILLISECONDS)
+        .readTimeout(readTimeoutMillis, TimeUnit.MILLISECONDS)
+        .writeTimeout(readTimeoutMillis, TimeUnit.MILLISECONDS)
+        .addInterceptor(latencyInterceptor(meterRegistry))
+        .build();
+  }
+
+  @Bean(destroyMethod = "close")
+  public Slack slack(OkHttpClient slackHttpClient) {
+    return Slack.getInstance(new SlackHttpClient(slackHttpClient));
+  }
+
+  @Bean
+  public MethodsClient slackMethods(Slack slack) {
+    return slack.methods(token);
+  }
+
+  /**
+   * Deduplicator of Slack events by event_id, settings from slack.events.dedup.
+   * @param jdbcTemplate JdbcTemplate
+   * @param meterRegistry registry for counter of duplicates
+   * @param environment environment with settings
+   * @return IdDeduplicator
+   */
+  @Bean
+  public IdDeduplicator slackEventDeduplicator(JdbcTemplate jdbcTemplate,
+      MeterRegistry meterRegistry, Environment environment) {
+    return new IdDeduplicator(jdbcTemplate, meterRegistry, environment, "SlackEventId",
+        "event_id", "slack.events.dedup", "slack.events.duplicates");
+  }
+
+  /**
+   * Record latency of every call as "slack.api.calls", tagged by API method and HTTP status.
+   */
+  private Interceptor latencyInterceptor(MeterRegistry meterRegistry) {
+    return chain -> {
+      String method = methodOf(chain.request().url().pathSegments());
+      long start = System.nanoTime();
+      String status = "IO_ERROR";
+      try {
+        Response response = chain.proceed(chain.request());
+        status = String.valueOf(response.code());
+        return response;
+      } finally {
+        Timer.builder("slack.api.calls")
+            .tag("method", method)
+            .tag("status", status)
+            .register(meterRegistry)
+            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+      }
+    };
+  }
+
+  /**
+   * Get name of API method for the tag. Paths outside /api/, e.g. incoming webhooks,
+   * end with a secret token and are tagged with a fixed value.
+   * @param path segments of request path
+   * @return API method or "webhook"
+   */
+  static String methodOf(List<String> path) {
+    return path.size() == 2 && "api".equals(path.get(0)) ? path.get(1) : "webhook";
+  }
+}
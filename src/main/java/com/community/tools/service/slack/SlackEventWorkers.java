@@ -0,0 +1,60 @@
+package com.community.tools.service.slack;
+
+import com.community.tools.service.UserLaneExecutor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Handles Slack events after they were acknowledged,
+ * on the lane of the user, who caused the event.
+ */
+@Component
+@RequiredArgsConstructor
+public class SlackEventWorkers {
+
+  private final UserLaneExecutor userLanes;
+  private final MeterRegistry meterRegistry;
+
+  private final AtomicInteger queued = new AtomicInteger();
+  private Timer waiting;
+  private Timer processing;
+
+  /**
+   * Register metrics.
+   */
+  @PostConstruct
+  public void start() {
+    meterRegistry.gauge("slack.events.queue.depth", queued);
+    waiting = Timer.builder("slack.events.waiting").register(meterRegistry);
+    processing = Timer.builder("slack.events.processing").register(meterRegistry);
+  }
+
+  /**
+   * Queue event handling.
+   * @param userId Slack`s userId, whose events must be handled in order
+   * @param task handling of event
+   * @return false if queue is full and event was not accepted
+   */
+  public boolean submit(String userId, Runnable task) {
+    long queuedAt = System.nanoTime();
+    queued.incrementAndGet();
+    try {
+      userLanes.execute(userId, () -> {
+        queued.decrementAndGet();
+        waiting.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+        processing.record(task);
+      });
+      return true;
+    } catch (RejectedExecutionException e) {
+      queued.decrementAndGet();
+      meterRegistry.counter("slack.events.rejected").increment();
+      return false;
+    }
+  }
+}
@@ -4,21 +4,40 @@ import static com.community.tools.util.statemachie.Event.AGREE_LICENSE;
 import static com.community.tools.util.statemachie.State.AGREED_LICENSE;
 
 import com.community.tools.service.StateMachineService;
+import com.community.tools.util.IdDeduplicator;
 import com.community.tools.util.statemachie.Event;
 import com.community.tools.util.statemachie.State;
 import com.community.tools.util.statemachie.jpa.StateEntity;
 import com.community.tools.util.statemachie.jpa.StateMachineRepository;
+import com.github.seratch.jslack.api.model.event.ChannelCreatedEvent;
+import com.github.seratch.jslack.api.model.event.ChannelRenameEvent;
+import com.github.seratch.jslack.app_backend.SlackSignature;
 import com.github.seratch.jslack.app_backend.events.EventsDispatcher;
+import com.github.seratch.jslack.app_backend.events.handler.ChannelArchiveHandler;
+import com.github.seratch.jslack.app_backend.events.handler.ChannelCreatedHandler;
+import com.github.seratch.jslack.app_backend.events.handler.ChannelRenameHandler;
 import com.github.seratch.jslack.app_backend.events.handler.MessageHandler;
 import com.github.seratch.jslack.app_backend.events.handler.TeamJoinHandler;
+import com.github.seratch.jslack.app_backend.events.handler.UserChangeHandler;
+import com.github.seratch.jslack.app_backend.events.payload.ChannelArchivePayload;
+import com.github.seratch.jslack.app_backend.events.payload.ChannelCreatedPayload;
+import com.github.seratch.jslack.app_backend.events.payload.ChannelRenamePayload;
 import com.github.seratch.jslack.app_backend.events.payload.MessagePayload;
 import com.github.seratch.jslack.app_backend.events.payload.TeamJoinPayload;
+import com.github.seratch.jslack.app_backend.events.payload.UserChangePayload;
 import com.github.seratch.jslack.app_backend.events.servlet.SlackEventsApiServlet;
+import com.github.seratch.jslack.app_backend.events.servlet.SlackSignatureVerifier;
+import com.github.seratch.jslack.common.json.GsonFactory;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.servlet.ServletRegistrationBean;
@@ -27,23 +46,29 @@ import org.springframework.statemachine.StateMachine;
 import org.springframework.stereotype.Component;
 
 
+@Slf4j
 @RequiredArgsConstructor
 @Component
 public class SlackHandlerService {
 
-  @Value("${notThatMessage}")
-  private String notThatMessage;
+  private static final String URL_VERIFICATION = "url_verification";
+  private static final String EVENT_ID = "event_id";
+  private static final String RETRY_NUM_HEADER = "X-Slack-Retry-Num";
+
   @Value("${welcome}")
   private String welcome;
   @Value("${idOfSlackBot}")
   private String idOfSlackBot;
-  @Value("${agreeMessage}")
-  private String agreeMessage;
   @Value("${usersAgreeMessage}")
   private String usersAgreeMessage;
 
   private final SlackService slackService;
   private final StateMachineService stateMachineService;
+  private final SlackUserDirectory userDirectory;
+  private final SlackChannelRegistry channelRegistry;
+  private final SlackEventWorkers eventWorkers;
+  private final IdDeduplicator slackEventDeduplicator;
+  private final MessageTemplates templates;
   @Autowired
   private StateMachineRepository stateMachineRepository;
 
@@ -51,6 +76,7 @@ public class SlackHandlerService {
     @Override
     public void handle(TeamJoinPayload teamJoinPayload) {
 
+      userDirectory.upsert(teamJoinPayload.getEvent().getUser());
       try {
         String user = teamJoinPayload.getEvent().getUser().getId();
         StateEntity stateEntity = new StateEntity();
@@ -58,10 +84,10 @@ public class SlackHandlerService {
         stateMachineRepository.save(stateEntity);
 
         stateMachineService.persistMachineForNewUser(user);
-        slackService.sendPrivateMessage(teamJoinPayload.getEvent().getUser().getRealName(),
+        slackService.sendPrivateMessageAsync(teamJoinPayload.getEvent().getUser().getRealName(),
             welcome);
-        slackService
-            .sendBlocksMessage(teamJoinPayload.getEvent().getUser().getRealName(), agreeMessage);
+        slackService.sendBlocksMessageAsync(teamJoinPayload.getEvent().getUser().getRealName(),
+            templates.get("agreeMessage").render());
       } catch (JsonParseException e) {
         e.getMessage();
       } catch (Exception e) {
@@ -70,6 +96,36 @@ public class SlackHandlerService {
     }
   };
 
+  private UserChangeHandler userChangeHandler = new UserChangeHandler() {
+    @Override
+    public void handle(UserChangePayload userChangePayload) {
+      userDirectory.upsert(userChangePayload.getEvent().getUser());
+    }
+  };
+
+  private ChannelCreatedHandler channelCreatedHandler = new ChannelCreatedHandler() {
+    @Override
+    public void handle(ChannelCreatedPayload channelCreatedPayload) {
+      ChannelCreatedEvent.Channel channel = channelCreatedPayload.getEvent().getChannel();
+      channelRegistry.put(channel.getId(), channel.getName());
+    }
+  };
+
+  private ChannelRenameHandler channelRenameHandler = new ChannelRenameHandler() {
+    @Override
+    public void handle(ChannelRenamePayload channelRenamePayload) {
+      ChannelRenameEvent.Channel channel = channelRenamePayload.getEvent().getChannel();
+      channelRegistry.put(channel.getId(), channel.getName());
+    }
+  };
+
+  private ChannelArchiveHandler channelArchiveHandler = new ChannelArchiveHandler() {
+    @Override
+    public void handle(ChannelArchivePayload channelArchivePayload) {
+      channelRegistry.remove(channelArchivePayload.getEvent().getChannel());
+    }
+  };
+
   private MessageHandler messageHandler = new MessageHandler() {
     @Override
     public void handle(MessagePayload teamJoinPayload) {
@@ -91,8 +147,8 @@ public class SlackHandlerService {
                 machine.sendEvent(Event.FIRST_AGREE_MESS);
                 stateMachineService.persistMachine(machine, teamJoinPayload.getEvent().getUser());
               } else {
-                slackService.sendPrivateMessage(teamJoinPayload.getEvent().getUser(),
-                        notThatMessage);
+                slackService.sendBlocksMessageAsync(teamJoinPayload.getEvent().getUser(),
+                        templates.get("notThatMessage").render());
               }
               break;
             case FIRST_LICENSE_MESS:
@@ -100,8 +156,8 @@ public class SlackHandlerService {
                 machine.sendEvent(Event.SECOND_AGREE_MESS);
                 stateMachineService.persistMachine(machine, teamJoinPayload.getEvent().getUser());
               } else {
-                slackService.sendPrivateMessage(teamJoinPayload.getEvent().getUser(),
-                        notThatMessage);
+                slackService.sendBlocksMessageAsync(teamJoinPayload.getEvent().getUser(),
+                        templates.get("notThatMessage").render());
               }
               break;
             case SECOND_LICENSE_MESS:
@@ -109,8 +165,8 @@ public class SlackHandlerService {
                 machine.sendEvent(AGREE_LICENSE);
                 stateMachineService.persistMachine(machine, teamJoinPayload.getEvent().getUser());
               } else {
-                slackService.sendPrivateMessage(teamJoinPayload.getEvent().getUser(),
-                        notThatMessage);
+                slackService.sendBlocksMessageAsync(teamJoinPayload.getEvent().getUser(),
+                        templates.get("notThatMessage").render());
               }
               break;
             default:
@@ -125,14 +181,82 @@ public class SlackHandlerService {
 
   public class GreatNewMemberServlet extends SlackEventsApiServlet {
 
+    private EventsDispatcher dispatcher;
+    private SlackSignatureVerifier signatureVerifier;
+
+    @Override
+    public void init() throws ServletException {
+      super.init();
+      signatureVerifier = new SlackSignatureVerifier(
+          new SlackSignature.Generator(getSlackSigningSecret()));
+    }
+
+    /**
+     * Acknowledge event at once and handle it in background,
+     * so Slack does not retry events, which take longer than 3 seconds.
+     */
     @Override
     protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
-      super.doPost(req, resp);
+      String body = doReadRequestBodyAsString(req);
+      if (isSignatureVerifierEnabled() && !signatureVerifier.isValid(req, body)) {
+        resp.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+        return;
+      }
+      JsonObject json;
+      try {
+        json = GsonFactory.createSnakeCase().fromJson(body, JsonElement.class).getAsJsonObject();
+      } catch (JsonParseException | IllegalStateException | NullPointerException e) {
+        resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        return;
+      }
+      JsonElement type = json.get("type");
+      if (type != null && URL_VERIFICATION.equals(type.getAsString())) {
+        resp.setStatus(HttpServletResponse.SC_OK);
+        resp.setContentType("text/plain");
+        resp.getOutputStream().write(
+            json.get("challenge").getAsString().getBytes(StandardCharsets.UTF_8));
+        return;
+      }
+      String eventId = json.has(EVENT_ID) ? json.get(EVENT_ID).getAsString() : null;
+      if (!slackEventDeduplicator.firstDelivery(eventId)) {
+        log.debug("Dropped redelivered event {}, retry {}", eventId,
+            req.getHeader(RETRY_NUM_HEADER));
+        resp.setStatus(HttpServletResponse.SC_OK);
+        return;
+      }
+      if (eventWorkers.submit(userOf(json, eventId), () -> dispatcher.dispatch(body))) {
+        resp.setStatus(HttpServletResponse.SC_OK);
+      } else {
+        // Slack retries the event later
+        slackEventDeduplicator.forget(eventId);
+        resp.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+      }
+    }
+
+    /**
+     * Get id of user, who caused the event. Events without user are spread by event_id.
+     */
+    private String userOf(JsonObject json, String eventId) {
+      JsonElement event = json.get("event");
+      JsonElement user = event != null && event.isJsonObject()
+          ? event.getAsJsonObject().get("user") : null;
+      if (user != null && user.isJsonPrimitive()) {
+        return user.getAsString();
+      }
+      if (user != null && user.isJsonObject() && user.getAsJsonObject().has("id")) {
+        return user.getAsJsonObject().get("id").getAsString();
+      }
+      return eventId != null ? eventId : json.toString();
     }
 
     @Override
     protected void setupDispatcher(EventsDispatcher dispatcher) {
+      this.dispatcher = dispatcher;
       dispatcher.register(teamJoinHandler);
+      dispatcher.register(userChangeHandler);
+      dispatcher.register(channelCreatedHandler);
+      dispatcher.register(channelRenameHandler);
+      dispatcher.register(channelArchiveHandler);
       dispatcher.register(messageHandler);
     }
   }
@@ -0,0 +1,236 @@
+package com.community.tools.service.slack;
+
+import com.community.tools.util.TokenBucket;
+import com.github.seratch.jslack.api.methods.SlackApiException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sends Slack messages in background. Messages to one channel keep their order and go
+ * no faster than one per interval; every API method is limited by its own token bucket.
+ * A channel has a lane only while it has messages or its interval has not passed,
+ * so lanes of direct messages do not pile up for every user ever messaged.
+ */
+@Slf4j
+@Component
+public class SlackMessageDispatcher {
+
+  private static final int TOO_MANY_REQUESTS = 429;
+
+  @Value("${slack.dispatcher.threads}")
+  private int threads;
+  @Value("${slack.dispatcher.channel.interval.millis}")
+  private long channelIntervalMillis;
+  @Value("${slack.dispatcher.max.attempts}")
+  private int maxAttempts;
+  @Value("${slack.dispatcher.backoff.millis}")
+  private long backoffMillis;
+  @Value("#{${slack.dispatcher.method.limits.per.minute}}")
+  private Map<String, Integer> methodLimits;
+  @Value("${slack.dispatcher.default.limit.per.minute}")
+  private int defaultMethodLimit;
+
+  private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+  private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+  private ScheduledExecutorService scheduler;
+
+  @PostConstruct
+  public void start() {
+    scheduler = Executors.newScheduledThreadPool(threads,
+        new CustomizableThreadFactory("slack-dispatcher-"));
+  }
+
+  @PreDestroy
+  public void stop() {
+    scheduler.shutdown();
+  }
+
+  /**
+   * Queue API call, which posts message to the channel.
+   * @param method name of Slack API method, e.g. "chat.postMessage"
+   * @param channel id of channel or user, the message goes to
+   * @param call API call, which returns timestamp of message
+   * @return future with timestamp of message
+   */
+  public CompletableFuture<String> submit(String method, String channel, SlackCall call) {
+    Message message = new Message(method, call);
+    while (true) {
+      Lane lane = lanes.computeIfAbsent(channel, Lane::new);
+      boolean idle;
+      synchronized (lane) {
+        if (lane.removed) {
+          // removed by drain after lookup, take the new lane of the channel
+          continue;
+        }
+        lane.queue.add(message);
+        idle = !lane.draining;
+        lane.draining = true;
+      }
+      if (idle) {
+        schedule(lane, 0);
+      }
+      return message.future;
+    }
+  }
+
+  private void schedule(Lane lane, long delayMillis) {
+    scheduler.schedule(() -> drain(lane), delayMillis, TimeUnit.MILLISECONDS);
+  }
+
+  private void drain(Lane lane) {
+    Message message;
+    synchronized (lane) {
+      message = lane.queue.peek();
+      if (message == null) {
+        long wait = lane.notBefore - System.currentTimeMillis();
+        if (wait > 0) {
+          // keep the lane until its interval passes, so the next message still waits
+          schedule(lane, wait);
+        } else {
+          lane.draining = false;
+          lane.removed = true;
+          lanes.remove(lane.channel, lane);
+        }
+        return;
+      }
+    }
+    long now = System.currentTimeMillis();
+    long wait = lane.notBefore - now;
+    if (wait <= 0) {
+      wait = bucket(message.method).tryAcquire(now);
+    }
+    if (wait > 0) {
+      schedule(lane, wait);
+      return;
+    }
+
+    try {
+      String ts = message.call.call();
+      lane.notBefore = System.currentTimeMillis() + channelIntervalMillis;
+      done(lane).future.complete(ts);
+    } catch (SlackApiException e) {
+      if (e.getResponse() != null && e.getResponse().code() == TOO_MANY_REQUESTS) {
+        long retryAt = System.currentTimeMillis() + retryAfterMillis(e, backoffMillis);
+        bucket(message.method).pauseUntil(retryAt);
+        retry(lane, message, retryAt, e);
+      } else {
+        fail(lane, message, e);
+      }
+    } catch (IOException e) {
+      if (notSent(e)) {
+        long retryAt = System.currentTimeMillis() + (backoffMillis << message.attempts);
+        retry(lane, message, retryAt, e);
+      } else {
+        // Slack may have posted the message before the response was lost
+        fail(lane, message, e);
+      }
+    } catch (RuntimeException e) {
+      fail(lane, message, e);
+    }
+    schedule(lane, Math.max(0, lane.notBefore - System.currentTimeMillis()));
+  }
+
+  private void retry(Lane lane, Message message, long retryAt, Exception cause) {
+    if (++message.attempts >= maxAttempts) {
+      fail(lane, message, cause);
+    } else {
+      log.debug("Retrying {} to {}, attempt {}", message.method, lane.channel,
+          message.attempts, cause);
+      lane.notBefore = retryAt;
+    }
+  }
+
+  private void fail(Lane lane, Message message, Exception cause) {
+    log.warn("Failed to send {} to {}", message.method, lane.channel, cause);
+    done(lane).future.completeExceptionally(cause);
+  }
+
+  private Message done(Lane lane) {
+    synchronized (lane) {
+      return lane.queue.remove();
+    }
+  }
+
+  /**
+   * Check whether the call failed before the request reached Slack, so it is safe to repeat.
+   * @param e failure of call
+   * @return true for failures to connect
+   */
+  static boolean notSent(IOException e) {
+    for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+      if (cause instanceof ConnectException || cause instanceof NoRouteToHostException
+          || cause instanceof UnknownHostException) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private TokenBucket bucket(String method) {
+    return buckets.computeIfAbsent(method, m -> new TokenBucket(
+        methodLimits.getOrDefault(m, defaultMethodLimit), TimeUnit.MINUTES.toMillis(1)));
+  }
+
+  /**
+   * Get wait before the next call from Retry-After header of a rate limited call.
+   * @param e rate limited call
+   * @param fallbackMillis wait if the header is missing or invalid
+   * @return wait in millis
+   */
+  static long retryAfterMillis(SlackApiException e, long fallbackMillis) {
+    String retryAfter = e.getResponse().header("Retry-After");
+    if (retryAfter == null) {
+      return fallbackMillis;
+    }
+    try {
+      return TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim()));
+    } catch (NumberFormatException ignored) {
+      return fallbackMillis;
+    }
+  }
+
+  @FunctionalInterface
+  public interface SlackCall {
+    String call() throws IOException, SlackApiException;
+  }
+
+  private static class Message {
+    private final String method;
+    private final SlackCall call;
+    private final CompletableFuture<String> future = new CompletableFuture<>();
+    private int attempts;
+
+    Message(String method, SlackCall call) {
+      this.method = method;
+      this.call = call;
+    }
+  }
+
+  private static class Lane {
+    private final String channel;
+    private final Queue<Message> queue = new ArrayDeque<>();
+    private boolean draining;
+    private boolean removed;
+    private volatile long notBefore;
+
+    Lane(String channel) {
+      this.channel = channel;
+    }
+  }
+}
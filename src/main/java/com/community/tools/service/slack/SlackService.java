@@ -1,16 +1,18 @@
 package com.community.tools.service.slack;
 
 import com.github.seratch.jslack.Slack;
+import com.github.seratch.jslack.api.methods.MethodsClient;
 import com.github.seratch.jslack.api.methods.SlackApiException;
-import com.github.seratch.jslack.api.methods.request.users.UsersListRequest;
+import com.github.seratch.jslack.api.methods.request.chat.ChatPostMessageRequest;
 import com.github.seratch.jslack.api.methods.response.chat.ChatPostMessageResponse;
-import com.github.seratch.jslack.api.model.Channel;
-import com.github.seratch.jslack.api.model.Conversation;
 import com.github.seratch.jslack.api.model.User;
 import com.github.seratch.jslack.api.webhook.Payload;
 import java.io.IOException;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.UnaryOperator;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -19,13 +21,20 @@ import org.springframework.stereotype.Service;
 @RequiredArgsConstructor
 public class SlackService {
 
-  @Value("${slack.token}")
-  private String token;
   @Value("${slack.webhook}")
   private String slackWebHook;
 
+  private static final String CHAT_POST_MESSAGE = "chat.postMessage";
+  private static final String CHANNEL_NOT_FOUND = "channel_not_found";
+
+  private final Slack slack;
+  private final MethodsClient slackMethods;
+  private final SlackUserDirectory userDirectory;
+  private final SlackChannelRegistry channelRegistry;
+  private final SlackMessageDispatcher dispatcher;
+
   /**
-   * Send private message with messageText to username.
+   * Send private message with messageText to username. Waits until the message is sent.
    * @param username Slack login
    * @param messageText Text of message
    * @return timestamp of message
@@ -34,22 +43,21 @@ public class SlackService {
    */
   public String sendPrivateMessage(String username, String messageText)
       throws IOException, SlackApiException {
-    Slack slack = Slack.getInstance();
-
-    User user = slack.methods(token).usersList(req -> req).getMembers().stream()
-        .filter(u -> u.getProfile().getDisplayName().equals(username))
-        .findFirst().get();
-
-    ChatPostMessageResponse postResponse =
-        slack.methods(token).chatPostMessage(
-            req -> req.channel(user.getId()).asUser(true)
-                .text(messageText));
+    return await(sendPrivateMessageAsync(username, messageText));
+  }
 
-    return postResponse.getTs();
+  /**
+   * Queue private message with messageText to username.
+   * @param username Slack login
+   * @param messageText Text of message
+   * @return future with timestamp of message
+   */
+  public CompletableFuture<String> sendPrivateMessageAsync(String username, String messageText) {
+    return postToUser(username, req -> req.text(messageText));
   }
 
   /**
-   * Send block message with messageText to username.
+   * Send block message with messageText to username. Waits until the message is sent.
    * @param username Slack login
    * @param messageText Text of message
    * @return timestamp of message
@@ -58,22 +66,21 @@ public class SlackService {
    */
   public String sendBlocksMessage(String username, String messageText)
       throws IOException, SlackApiException {
-    Slack slack = Slack.getInstance();
-
-    User user = slack.methods(token).usersList(req -> req).getMembers().stream()
-        .filter(u -> u.getProfile().getDisplayName().equals(username))
-        .findFirst().get();
-
-    ChatPostMessageResponse postResponse =
-        slack.methods(token).chatPostMessage(
-            req -> req.channel(user.getId()).asUser(true)
-                .blocksAsString(messageText));
+    return await(sendBlocksMessageAsync(username, messageText));
+  }
 
-    return postResponse.getTs();
+  /**
+   * Queue block message with messageText to username.
+   * @param username Slack login
+   * @param messageText Text of message
+   * @return future with timestamp of message
+   */
+  public CompletableFuture<String> sendBlocksMessageAsync(String username, String messageText) {
+    return postToUser(username, req -> req.blocksAsString(messageText));
   }
 
   /**
-   * Send attachment message with messageText to username.
+   * Send attachment message with messageText to username. Waits until the message is sent.
    * @param username Slack login
    * @param messageText Text of message
    * @return timestamp of message
@@ -82,22 +89,22 @@ public class SlackService {
    */
   public String sendAttachmentsMessage(String username, String messageText)
       throws IOException, SlackApiException {
-    Slack slack = Slack.getInstance();
-
-    User user = slack.methods(token).usersList(req -> req).getMembers().stream()
-        .filter(u -> u.getProfile().getDisplayName().equals(username))
-        .findFirst().get();
-
-    ChatPostMessageResponse postResponse =
-        slack.methods(token).chatPostMessage(
-            req -> req.channel(user.getId()).asUser(true)
-                .attachmentsAsString(messageText));
+    return await(sendAttachmentsMessageAsync(username, messageText));
+  }
 
-    return postResponse.getTs();
+  /**
+   * Queue attachment message with messageText to username.
+   * @param username Slack login
+   * @param messageText Text of message
+   * @return future with timestamp of message
+   */
+  public CompletableFuture<String> sendAttachmentsMessageAsync(String username,
+      String messageText) {
+    return postToUser(username, req -> req.attachmentsAsString(messageText));
   }
 
   /**
-   * Send attachment message with messageText to channel.
+   * Send attachment message with messageText to channel. Waits until the message is sent.
    * @param channelName Name of channel
    * @param messageText Text of message
    * @return timestamp of message
@@ -106,18 +113,27 @@ public class SlackService {
    */
   public String sendMessageToConversation(String channelName, String messageText)
       throws IOException, SlackApiException {
+    return await(sendMessageToConversationAsync(channelName, messageText));
+  }
 
-    Slack slack = Slack.getInstance();
-    Conversation channel = slack.methods(token)
-        .conversationsList(req -> req)
-        .getChannels()
-        .stream()
-        .filter(u -> u.getName().equals(channelName))
-        .findFirst().get();
-    ChatPostMessageResponse postResponse =
-        slack.methods(token).chatPostMessage(
-            req -> req.channel(channel.getId()).asUser(true).text(messageText));
-    return postResponse.getTs();
+  /**
+   * Queue message with messageText to channel.
+   * @param channelName Name of channel
+   * @param messageText Text of message
+   * @return future with timestamp of message
+   */
+  public CompletableFuture<String> sendMessageToConversationAsync(String channelName,
+      String messageText) {
+    String channelId = channelRegistry.resolve(channelName).get();
+    return dispatcher.submit(CHAT_POST_MESSAGE, channelId, () -> {
+      ChatPostMessageResponse postResponse = postMessage(channelId, req -> req.text(messageText));
+      if (!postResponse.isOk() && CHANNEL_NOT_FOUND.equals(postResponse.getError())) {
+        // channel was recreated or renamed since it was cached
+        String freshId = channelRegistry.reresolve(channelName).get();
+        postResponse = postMessage(freshId, req -> req.text(messageText));
+      }
+      return postResponse.getTs();
+    });
   }
 
   /**
@@ -131,20 +147,7 @@ public class SlackService {
   @Deprecated
   public String sendMessageToChat(String channelName, String messageText)
       throws IOException, SlackApiException {
-    Slack slack = Slack.getInstance();
-
-    Channel channel = slack.methods(token)
-        .channelsList(req -> req)
-        .getChannels()
-        .stream()
-        .filter(u -> u.getName().equals(channelName))
-        .findFirst().get();
-
-    ChatPostMessageResponse postResponse =
-        slack.methods(token).chatPostMessage(
-            req -> req.channel(channel.getId()).asUser(true).text(messageText));
-
-    return postResponse.getTs();
+    return sendMessageToConversation(channelName, messageText);
   }
 
   /**
@@ -153,15 +156,7 @@ public class SlackService {
    * @return realName of User
    */
   public String getUserById(String id) {
-    Slack slack = Slack.getInstance();
-    try {
-      User user = slack.methods(token).usersList(req -> req).getMembers().stream()
-          .filter(u -> u.getId().equals(id))
-          .findFirst().get();
-      return user.getRealName();
-    } catch (IOException | SlackApiException e) {
-      throw new RuntimeException(e);
-    }
+    return userDirectory.findById(id).get().getRealName();
   }
 
   /**
@@ -170,15 +165,7 @@ public class SlackService {
    * @return Slack`s id
    */
   public String getIdByUser(String id) {
-    Slack slack = Slack.getInstance();
-    try {
-      User user = slack.methods(token).usersList(req -> req).getMembers().stream()
-          .filter(u -> u.getRealName().equals(id))
-          .findFirst().get();
-      return user.getId();
-    } catch (IOException | SlackApiException e) {
-      throw new RuntimeException(e);
-    }
+    return userDirectory.findByRealName(id).get().getId();
   }
 
   /**
@@ -186,18 +173,7 @@ public class SlackService {
    * @return Set of users.
    */
   public Set<User> getAllUsers() {
-    try {
-      Slack slack = Slack.getInstance();
-      Set<User> users = new HashSet<>(slack.methods()
-          .usersList(UsersListRequest.builder()
-              .token(token)
-              .build())
-          .getMembers());
-
-      return users;
-    } catch (IOException | SlackApiException e) {
-      throw new RuntimeException(e);
-    }
+    return new HashSet<>(userDirectory.getAllUsers());
   }
 
   /**
@@ -207,10 +183,43 @@ public class SlackService {
   public void sendAnnouncement(String message) {
     try {
       Payload payload = Payload.builder().text(message).build();
-      Slack slack = Slack.getInstance();
       slack.send(slackWebHook, payload);
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
   }
-}
\ No newline at end of file
+
+  private CompletableFuture<String> postToUser(String username, MessageBody body) {
+    String userId = userDirectory.findByDisplayName(username).get().getId();
+    return dispatcher.submit(CHAT_POST_MESSAGE, userId,
+        () -> postMessage(userId, body).getTs());
+  }
+
+  private ChatPostMessageResponse postMessage(String channelId, MessageBody body)
+      throws IOException, SlackApiException {
+    return slackMethods.chatPostMessage(
+        req -> body.apply(req.channel(channelId).asUser(true)));
+  }
+
+  private static String await(CompletableFuture<String> future)
+      throws IOException, SlackApiException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      if (e.getCause() instanceof SlackApiException) {
+        throw (SlackApiException) e.getCause();
+      }
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  private interface MessageBody
+      extends UnaryOperator<ChatPostMessageRequest.ChatPostMessageRequestBuilder> {
+  }
+}
@@ -0,0 +1,231 @@
+package com.community.tools.service.slack;
+
+import com.github.seratch.jslack.api.methods.MethodsClient;
+import com.github.seratch.jslack.api.methods.SlackApiException;
+import com.github.seratch.jslack.api.methods.response.users.UsersListResponse;
+import com.github.seratch.jslack.api.model.User;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SlackUserDirectory {
+
+  private static final int TOO_MANY_REQUESTS = 429;
+  private static final int MAX_RATE_LIMITED = 5;
+  private static final long RATE_LIMIT_FALLBACK_MILLIS = 1000;
+
+  @Value("${slack.users.miss.refresh.millis}")
+  private long missRefreshMillis;
+  @Value("${slack.users.page.size}")
+  private int pageSize;
+
+  private final MethodsClient slackMethods;
+
+  private volatile Snapshot snapshot;
+  private final Object deltaLock = new Object();
+  private List<User> deltasDuringReload;
+
+  /**
+   * Find user by Slack`s id.
+   * @param id Slack`s id
+   * @return User, if present
+   */
+  public Optional<User> findById(String id) {
+    return find(s -> s.byId.get(id));
+  }
+
+  /**
+   * Find user by display name from the profile.
+   * @param displayName display name of user
+   * @return User, if present
+   */
+  public Optional<User> findByDisplayName(String displayName) {
+    return find(s -> s.byDisplayName.get(displayName));
+  }
+
+  /**
+   * Find user by real name.
+   * @param realName real name of user
+   * @return User, if present
+   */
+  public Optional<User> findByRealName(String realName) {
+    return find(s -> s.byRealName.get(realName));
+  }
+
+  /**
+   * Get all Slack`s users known to the directory.
+   * @return Collection of users
+   */
+  public Collection<User> getAllUsers() {
+    return Collections.unmodifiableCollection(snapshot().byId.values());
+  }
+
+  /**
+   * Apply a single member delta, e.g. from team_join or user_change event.
+   * Deltas, which come while users are reloaded, are applied again to the reloaded users,
+   * which may have been fetched before the delta.
+   * @param user new state of Slack`s user
+   */
+  public void upsert(User user) {
+    synchronized (deltaLock) {
+      if (deltasDuringReload != null) {
+        deltasDuringReload.add(user);
+      }
+      Snapshot current = snapshot;
+      if (current != null) {
+        current.put(user, true);
+      }
+    }
+  }
+
+  /**
+   * Reload all users from Slack. Runs in background, so lookups never wait for it.
+   * Deltas keep the directory current between runs, so this only reconciles drift.
+   */
+  @Scheduled(fixedDelayString = "${slack.users.refresh.millis}",
+      initialDelayString = "${slack.users.refresh.millis}")
+  public void refresh() {
+    try {
+      reload(snapshot);
+    } catch (RuntimeException e) {
+      log.warn("Failed to refresh Slack users, keeping previous snapshot", e);
+    }
+  }
+
+  private Optional<User> find(Function<Snapshot, User> lookup) {
+    Snapshot current = snapshot();
+    User user = lookup.apply(current);
+    if (user == null && System.currentTimeMillis() - current.loadedAt > missRefreshMillis) {
+      // user may have joined after the last load
+      user = lookup.apply(reload(current));
+    }
+    return Optional.ofNullable(user);
+  }
+
+  private Snapshot snapshot() {
+    Snapshot current = snapshot;
+    return current != null ? current : reload(null);
+  }
+
+  private synchronized Snapshot reload(Snapshot seen) {
+    if (snapshot != seen) {
+      // already reloaded by another thread while this one was waiting
+      return snapshot;
+    }
+    synchronized (deltaLock) {
+      deltasDuringReload = new ArrayList<>();
+    }
+    try {
+      Snapshot loaded = new Snapshot();
+      fetchAllMembers().forEach(user -> loaded.put(user, false));
+      synchronized (deltaLock) {
+        deltasDuringReload.forEach(user -> loaded.put(user, true));
+        snapshot = loaded;
+      }
+      return loaded;
+    } finally {
+      synchronized (deltaLock) {
+        deltasDuringReload = null;
+      }
+    }
+  }
+
+  /**
+   * Fetch all pages of users.list. A rate limited page is fetched again after Retry-After,
+   * so a large workspace does not abort the whole reload.
+   */
+  private List<User> fetchAllMembers() {
+    List<User> members = new ArrayList<>();
+    String cursor = null;
+    int rateLimited = 0;
+    try {
+      while (true) {
+        String page = cursor;
+        UsersListResponse response;
+        try {
+          response = slackMethods.usersList(req -> req.limit(pageSize).cursor(page));
+        } catch (SlackApiException e) {
+          if (e.getResponse() == null || e.getResponse().code() != TOO_MANY_REQUESTS
+              || ++rateLimited > MAX_RATE_LIMITED) {
+            throw e;
+          }
+          Thread.sleep(SlackMessageDispatcher.retryAfterMillis(e, RATE_LIMIT_FALLBACK_MILLIS));
+          continue;
+        }
+        if (!response.isOk()) {
+          throw new IllegalStateException("users.list failed: " + response.getError());
+        }
+        members.addAll(response.getMembers());
+        cursor = response.getResponseMetadata() == null
+            ? null : response.getResponseMetadata().getNextCursor();
+        if (cursor == null || cursor.isEmpty()) {
+          return members;
+        }
+      }
+    } catch (IOException | SlackApiException e) {
+      throw new RuntimeException(e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Indexes of users. Replaced as a whole on every full reload, updated in place by deltas.
+   */
+  private static class Snapshot {
+    private final Map<String, User> byId = new ConcurrentHashMap<>();
+    private final Map<String, User> byDisplayName = new ConcurrentHashMap<>();
+    private final Map<String, User> byRealName = new ConcurrentHashMap<>();
+    private final long loadedAt = System.currentTimeMillis();
+
+    /**
+     * Index user. On full load the first user with a name wins, as the old linear scan did;
+     * a delta always wins, because it is the latest known state.
+     */
+    void put(User user, boolean replace) {
+      User previous = byId.put(user.getId(), user);
+      if (previous != null) {
+        remove(byDisplayName, displayName(previous), previous);
+        remove(byRealName, previous.getRealName(), previous);
+      }
+      index(byDisplayName, displayName(user), user, replace);
+      index(byRealName, user.getRealName(), user, replace);
+    }
+
+    private static String displayName(User user) {
+      return user.getProfile() == null ? null : user.getProfile().getDisplayName();
+    }
+
+    private static void index(Map<String, User> index, String key, User user, boolean replace) {
+      if (key == null) {
+        return;
+      }
+      if (replace) {
+        index.put(key, user);
+      } else {
+        index.putIfAbsent(key, user);
+      }
+    }
+
+    private static void remove(Map<String, User> index, String key, User user) {
+      if (key != null) {
+        index.remove(key, user);
+      }
+    }
+  }
+}
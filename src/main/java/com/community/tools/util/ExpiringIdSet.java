@@ -0,0 +1,65 @@
+package com.community.tools.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers recently seen ids. An id is forgotten after ttl,
+ * or earlier when more than maxSize ids are remembered.
+ */
+public class ExpiringIdSet {
+
+  private final int maxSize;
+  private final long ttlMillis;
+  private final LinkedHashMap<String, Long> seenAt = new LinkedHashMap<>();
+
+  /**
+   * Constructor of ExpiringIdSet.
+   * @param maxSize max number of remembered ids
+   * @param ttlMillis time in which id is remembered
+   */
+  public ExpiringIdSet(int maxSize, long ttlMillis) {
+    this.maxSize = maxSize;
+    this.ttlMillis = ttlMillis;
+  }
+
+  /**
+   * Remember id.
+   * @param id id
+   * @param now current time in millis
+   * @return true if id was not seen within ttl
+   */
+  public synchronized boolean add(String id, long now) {
+    evictExpired(now);
+    if (seenAt.containsKey(id)) {
+      return false;
+    }
+    seenAt.put(id, now);
+    if (seenAt.size() > maxSize) {
+      Iterator<String> eldest = seenAt.keySet().iterator();
+      eldest.next();
+      eldest.remove();
+    }
+    return true;
+  }
+
+  /**
+   * Forget id, e.g. when its handling failed and redelivery should be accepted.
+   * @param id id
+   */
+  public synchronized void remove(String id) {
+    seenAt.remove(id);
+  }
+
+  public synchronized int size() {
+    return seenAt.size();
+  }
+
+  private void evictExpired(long now) {
+    Iterator<Map.Entry<String, Long>> entries = seenAt.entrySet().iterator();
+    while (entries.hasNext() && now - entries.next().getValue() >= ttlMillis) {
+      entries.remove();
+    }
+  }
+}
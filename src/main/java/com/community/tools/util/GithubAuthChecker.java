@@ -1,18 +1,31 @@
 package com.community.tools.util;
 
+import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import javax.validation.constraints.NotNull;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.DecoderException;
 import org.apache.commons.codec.binary.Hex;
 
+/**
+ * Checks signatures of GitHub webhooks. One checker is shared by all requests,
+ * every thread reuses its own initialized Mac of each algorithm.
+ */
 @Slf4j
 public final class GithubAuthChecker {
 
   static final String HMAC_SHA1 = "HmacSHA1";
-  final Mac mac;
+  static final String HMAC_SHA256 = "HmacSHA256";
+  private static final String SHA1_PREFIX = "sha1=";
+  private static final String SHA256_PREFIX = "sha256=";
+
+  private final byte[] secret;
+  private final ThreadLocal<Mac> sha1 = ThreadLocal.withInitial(() -> newMac(HMAC_SHA1));
+  private final ThreadLocal<Mac> sha256 = ThreadLocal.withInitial(() -> newMac(HMAC_SHA256));
 
   /**
    * Constructor of GithubAuthChecker.
@@ -22,9 +35,10 @@ public final class GithubAuthChecker {
    */
   public GithubAuthChecker(String secret)
       throws NoSuchAlgorithmException, InvalidKeyException {
-    mac = Mac.getInstance(HMAC_SHA1);
-    final SecretKeySpec signingKey = new SecretKeySpec(secret.getBytes(), HMAC_SHA1);
-    mac.init(signingKey);
+    this.secret = secret.getBytes(StandardCharsets.UTF_8);
+    for (String algorithm : new String[] {HMAC_SHA1, HMAC_SHA256}) {
+      Mac.getInstance(algorithm).init(new SecretKeySpec(this.secret, algorithm));
+    }
   }
 
   /**
@@ -35,17 +49,50 @@ public final class GithubAuthChecker {
    * @return Whether the signature is correct for the checker's secret
    */
   public boolean checkSignature(String signature, @NotNull String payload) {
-    if (signature == null || signature.length() != 45) {
+    return checkSignature(signature, payload.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Checks a github signature against raw bytes of its payload in constant time.
+   *
+   * @param signature A X-Hub-Signature-256 ("sha256=[...]") or X-Hub-Signature ("sha1=[...]")
+   *                  header value
+   * @param payload   The signed HTTP request body
+   * @return Whether the signature is correct for the checker's secret
+   */
+  public boolean checkSignature(String signature, @NotNull byte[] payload) {
+    if (signature == null) {
       return false;
     }
+    Mac mac;
+    String hex;
+    if (signature.startsWith(SHA256_PREFIX)) {
+      mac = sha256.get();
+      hex = signature.substring(SHA256_PREFIX.length());
+    } else if (signature.startsWith(SHA1_PREFIX)) {
+      mac = sha1.get();
+      hex = signature.substring(SHA1_PREFIX.length());
+    } else {
+      return false;
+    }
+    byte[] expected = mac.doFinal(payload);
+    byte[] actual;
+    try {
+      actual = Hex.decodeHex(hex);
+    } catch (DecoderException e) {
+      log.debug("Signature {} is not hex", signature);
+      return false;
+    }
+    return MessageDigest.isEqual(expected, actual);
+  }
 
-    final char[] hash = Hex.encodeHex(this.mac.doFinal(payload.getBytes()));
-
-    final StringBuilder builder = new StringBuilder("sha1=");
-    builder.append(hash);
-    final String expected = builder.toString();
-
-    log.debug("Comparing {} and {}", expected, signature);
-    return expected.equals(signature);
+  private Mac newMac(String algorithm) {
+    try {
+      Mac mac = Mac.getInstance(algorithm);
+      mac.init(new SecretKeySpec(secret, algorithm));
+      return mac;
+    } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+      throw new RuntimeException(e);
+    }
   }
-}
\ No newline at end of file
+}
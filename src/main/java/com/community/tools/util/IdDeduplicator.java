@@ -0,0 +1,122 @@
+package com.community.tools.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+/**
+ * Drops redelivered events by their id. Recent ids are checked in memory first and,
+ * if enabled, recorded in a Postgres table under a unique constraint,
+ * so redeliveries are caught across restarts and instances.
+ * Settings are read from properties PREFIX.max.size, PREFIX.ttl.millis
+ * and PREFIX.jdbc.enabled; stored ids older than ttl are purged every ttl.
+ */
+@Slf4j
+public class IdDeduplicator implements SchedulingConfigurer {
+
+  private final JdbcTemplate jdbcTemplate;
+  private final String table;
+  private final boolean jdbcEnabled;
+  private final long ttlMillis;
+  private final ExpiringIdSet recentIds;
+  private final Counter duplicates;
+  private final String insertId;
+  private final String deleteId;
+  private final String deleteExpired;
+
+  /**
+   * Constructor of IdDeduplicator.
+   * @param jdbcTemplate JdbcTemplate
+   * @param meterRegistry registry for counter of duplicates
+   * @param environment environment with settings
+   * @param table table with columns column and "received_at"
+   * @param column primary key column of ids
+   * @param propertyPrefix prefix of settings
+   * @param duplicatesMetric name of counter of duplicates
+   */
+  public IdDeduplicator(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+      Environment environment, String table, String column, String propertyPrefix,
+      String duplicatesMetric) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.table = table;
+    this.jdbcEnabled = environment.getRequiredProperty(propertyPrefix + ".jdbc.enabled",
+        Boolean.class);
+    this.ttlMillis = environment.getRequiredProperty(propertyPrefix + ".ttl.millis", Long.class);
+    this.recentIds = new ExpiringIdSet(
+        environment.getRequiredProperty(propertyPrefix + ".max.size", Integer.class), ttlMillis);
+    this.duplicates = meterRegistry.counter(duplicatesMetric);
+    this.insertId = "INSERT INTO public.\"" + table + "\" (\"" + column + "\", \"received_at\") "
+        + "VALUES (?, now()) ON CONFLICT DO NOTHING";
+    this.deleteId = "DELETE FROM public.\"" + table + "\" WHERE \"" + column + "\" = ?";
+    this.deleteExpired = "DELETE FROM public.\"" + table + "\" "
+        + "WHERE \"received_at\" < now() - ? * interval '1 millisecond'";
+  }
+
+  /**
+   * Check that event is delivered for the first time and remember it.
+   * If the table is not available, only memory is checked.
+   * @param id id of event, may be null
+   * @return false if event was already received
+   */
+  public boolean firstDelivery(String id) {
+    if (id == null) {
+      return true;
+    }
+    boolean first = recentIds.add(id, System.currentTimeMillis());
+    if (first && jdbcEnabled) {
+      try {
+        first = jdbcTemplate.update(insertId, id) > 0;
+      } catch (DataAccessException e) {
+        log.warn("Failed to store id {} in {}, relying on memory only", id, table, e);
+      }
+    }
+    if (!first) {
+      duplicates.increment();
+    }
+    return first;
+  }
+
+  /**
+   * Forget event, which was not accepted, so its redelivery is handled.
+   * @param id id of event, may be null
+   */
+  public void forget(String id) {
+    if (id == null) {
+      return;
+    }
+    recentIds.remove(id);
+    if (jdbcEnabled) {
+      try {
+        jdbcTemplate.update(deleteId, id);
+      } catch (DataAccessException e) {
+        log.warn("Failed to forget id {} in {}", id, table, e);
+      }
+    }
+  }
+
+  /**
+   * Delete stored ids, which are older than ttl.
+   */
+  public void purgeExpired() {
+    if (!jdbcEnabled) {
+      return;
+    }
+    try {
+      jdbcTemplate.update(deleteExpired, ttlMillis);
+    } catch (DataAccessException e) {
+      log.warn("Failed to purge expired ids in {}", table, e);
+    }
+  }
+
+  @Override
+  public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+    if (jdbcEnabled) {
+      taskRegistrar.addFixedDelayTask(this::purgeExpired, ttlMillis);
+    }
+  }
+}
@@ -0,0 +1,51 @@
+package com.community.tools.util;
+
+public class TokenBucket {
+
+  private final double capacity;
+  private final double tokensPerMilli;
+  private double tokens;
+  private long refilledAt;
+  private long pausedUntil;
+
+  /**
+   * Constructor of TokenBucket. Bucket starts full.
+   * @param capacity max number of tokens, e.g. allowed burst
+   * @param periodMillis time in which the whole capacity is refilled
+   */
+  public TokenBucket(int capacity, long periodMillis) {
+    this.capacity = capacity;
+    this.tokensPerMilli = (double) capacity / periodMillis;
+    this.tokens = capacity;
+  }
+
+  /**
+   * Take one token, if there is one.
+   * @param now current time in millis
+   * @return 0 if token was taken, otherwise millis to wait before next attempt
+   */
+  public synchronized long tryAcquire(long now) {
+    if (now < pausedUntil) {
+      return pausedUntil - now;
+    }
+    if (now > refilledAt) {
+      tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerMilli);
+      refilledAt = now;
+    }
+    if (tokens >= 1) {
+      tokens -= 1;
+      return 0;
+    }
+    return (long) Math.ceil((1 - tokens) / tokensPerMilli);
+  }
+
+  /**
+   * Give out no tokens until the given time, e.g. when server asked to retry later.
+   * @param until time in millis
+   */
+  public synchronized void pauseUntil(long until) {
+    pausedUntil = Math.max(pausedUntil, until);
+    tokens = 0;
+    refilledAt = Math.max(refilledAt, until);
+  }
+}
@@ -5,8 +5,6 @@ import com.community.tools.util.statemachie.Event;
 import com.community.tools.util.statemachie.State;
 import com.community.tools.util.statemachie.jpa.StateEntity;
 import com.community.tools.util.statemachie.jpa.StateMachineRepository;
-import com.github.seratch.jslack.api.methods.SlackApiException;
-import java.io.IOException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.statemachine.StateContext;
@@ -30,10 +28,6 @@ public class AddGitNameAction implements Action<State, Event> {
     StateEntity stateEntity = stateMachineRepository.findByUserID(user).get();
     stateEntity.setGitName(nickname);
     stateMachineRepository.save(stateEntity);
-    try {
-      slackService.sendPrivateMessage(slackService.getUserById(user), congratsAvailableNick);
-    } catch (IOException | SlackApiException e) {
-      throw new RuntimeException(e);
-    }
+    slackService.sendPrivateMessageAsync(slackService.getUserById(user), congratsAvailableNick);
   }
 }
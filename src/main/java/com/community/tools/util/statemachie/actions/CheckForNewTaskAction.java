@@ -1,12 +1,12 @@
 package com.community.tools.util.statemachie.actions;
 
+import static com.community.tools.service.slack.MessageTemplate.Placeholder.TASK;
+
+import com.community.tools.service.slack.MessageTemplates;
 import com.community.tools.service.slack.SlackService;
 import com.community.tools.util.statemachie.Event;
 import com.community.tools.util.statemachie.State;
-import com.github.seratch.jslack.api.methods.SlackApiException;
-import java.io.IOException;
-import java.util.Arrays;
-import java.util.List;
+import java.util.Collections;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.statemachine.StateContext;
@@ -15,22 +15,17 @@ import org.springframework.statemachine.action.Action;
 public class CheckForNewTaskAction implements Action<State, Event> {
   @Autowired
   private SlackService slackService;
+  @Autowired
+  private MessageTemplates templates;
   @Value("${tasksForUsers}")
   private String[] tasksForUsers;
 
   @Override
   public void execute(final StateContext<State, Event> context) {
-    List<String> tasksList = Arrays.asList(tasksForUsers);
-
     int i = (Integer)context.getExtendedState().getVariables().get("taskNumber");
-    String taskMessage =
-          "[{\"type\": \"section\",\"text\": {\"type\": \"mrkdwn\",\"text\": \"Here is your next <https://github.com/Broscorp-net/traineeship/tree/master/module1/src/main/java/net/broscorp/"
-              + tasksList.get(i) + "|TASK>.\"}}]";
+    String taskMessage = templates.get("nextTask")
+        .render(Collections.singletonMap(TASK, tasksForUsers[i]));
     String user = context.getExtendedState().getVariables().get("id").toString();
-    try {
-      slackService.sendBlocksMessage(slackService.getUserById(user), taskMessage);
-    } catch (IOException | SlackApiException e) {
-      throw new RuntimeException(e);
-    }
+    slackService.sendBlocksMessageAsync(slackService.getUserById(user), taskMessage);
   }
 }
\ No newline at end of file
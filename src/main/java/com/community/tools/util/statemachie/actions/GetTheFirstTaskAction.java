@@ -1,12 +1,10 @@
 package com.community.tools.util.statemachie.actions;
 
+import com.community.tools.service.slack.MessageTemplates;
 import com.community.tools.service.slack.SlackService;
 import com.community.tools.util.statemachie.Event;
 import com.community.tools.util.statemachie.State;
-import com.github.seratch.jslack.api.methods.SlackApiException;
-import java.io.IOException;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.statemachine.StateContext;
 import org.springframework.statemachine.action.Action;
 import org.springframework.stereotype.Component;
@@ -14,18 +12,15 @@ import org.springframework.stereotype.Component;
 
 public class GetTheFirstTaskAction implements Action<State, Event> {
 
-  @Value("${getFirstTask}")
-  private String getFirstTask;
   @Autowired
   private SlackService slackService;
+  @Autowired
+  private MessageTemplates templates;
 
   @Override
   public void execute(final StateContext<State, Event> context) {
     String user = context.getExtendedState().getVariables().get("id").toString();
-    try {
-      slackService.sendBlocksMessage(slackService.getUserById(user), getFirstTask);
-    } catch (IOException | SlackApiException e) {
-      throw new RuntimeException(e);
-    }
+    slackService.sendBlocksMessageAsync(slackService.getUserById(user),
+        templates.get("getFirstTask").render());
   }
 }
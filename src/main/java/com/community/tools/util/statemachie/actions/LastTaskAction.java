@@ -3,8 +3,6 @@ package com.community.tools.util.statemachie.actions;
 import com.community.tools.service.slack.SlackService;
 import com.community.tools.util.statemachie.Event;
 import com.community.tools.util.statemachie.State;
-import com.github.seratch.jslack.api.methods.SlackApiException;
-import java.io.IOException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.statemachine.StateContext;
@@ -19,11 +17,7 @@ public class LastTaskAction implements Action<State, Event> {
   @Override
   public void execute(final StateContext<State, Event> context) {
     String user = context.getExtendedState().getVariables().get("id").toString();
-    try {
-      slackService.sendPrivateMessage(slackService.getUserById(user),lastTask);
-    } catch (IOException | SlackApiException e) {
-      throw new RuntimeException(e);
-    }
+    slackService.sendPrivateMessageAsync(slackService.getUserById(user),lastTask);
   }
 
 }
@@ -1,13 +1,20 @@
 package com.community.tools.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.community.tools.service.github.GitHubConnectService;
+import com.community.tools.service.github.GitHubConnectService.GitHubCall;
+import com.community.tools.service.github.GitHubRateLimitGovernor;
+import com.community.tools.service.github.jpa.CompletedTaskRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -44,10 +51,13 @@ class CountingCompletedTasksServiceTest {
 
     GitHubConnectService service = mock(GitHubConnectService.class);
     GHRepository rep = mock(GHRepository.class);
-    when(service.getGitHubRepository()).thenReturn(rep);
+    connect(service, rep);
     when(rep.getPullRequests(GHIssueState.CLOSED)).thenReturn(fakeReq);
 
-    CountingCompletedTasksService cct = new CountingCompletedTasksService(service);
+    CountingCompletedTasksService cct = new CountingCompletedTasksService(service,
+        mock(CompletedTaskRepository.class),
+        new GitHubRateLimitGovernor(new SimpleMeterRegistry()));
+    cct.reconcile();
 
     Map<String, List<String>> map = cct.getCountedCompletedTasks();
 
@@ -58,4 +68,62 @@ class CountingCompletedTasksServiceTest {
       assertEquals(list.getValue().iterator().next(), "exercise_1");
     }
   }
-}
\ No newline at end of file
+
+  @Test
+  void updateFromWebhook() {
+    CompletedTaskRepository repository = mock(CompletedTaskRepository.class);
+    CountingCompletedTasksService cct = new CountingCompletedTasksService(
+        mock(GitHubConnectService.class), repository,
+        new GitHubRateLimitGovernor(new SimpleMeterRegistry()));
+
+    cct.update(7, "roman", "exercise_1", true);
+    cct.update(8, "roman", "exercise_2", true);
+    cct.update(7, "roman", "exercise_1", false);
+
+    assertEquals(Collections.singletonMap("roman", Collections.singletonList("exercise_2")),
+        cct.getCountedCompletedTasks());
+    verify(repository).deleteById(7);
+  }
+
+  @Test
+  void keepsUpdatesFromWebhooksDuringCrawl() throws IOException {
+    GitHubConnectService service = mock(GitHubConnectService.class);
+    GHRepository rep = mock(GHRepository.class);
+    connect(service, rep);
+    CountingCompletedTasksService cct = new CountingCompletedTasksService(service,
+        mock(CompletedTaskRepository.class),
+        new GitHubRateLimitGovernor(new SimpleMeterRegistry()));
+    when(rep.getPullRequests(GHIssueState.CLOSED)).thenAnswer(invocation -> {
+      cct.update(9, "roman", "exercise_3", true);
+      return Collections.emptyList();
+    });
+
+    cct.reconcile();
+
+    assertEquals(Collections.singletonMap("roman", Collections.singletonList("exercise_3")),
+        cct.getCountedCompletedTasks());
+  }
+
+  @Test
+  void reconcileOnStartOnlyWhenEmpty() throws IOException {
+    GitHubConnectService service = mock(GitHubConnectService.class);
+    GHRepository rep = mock(GHRepository.class);
+    connect(service, rep);
+    when(rep.getPullRequests(GHIssueState.CLOSED)).thenReturn(Collections.emptyList());
+    CountingCompletedTasksService cct = new CountingCompletedTasksService(service,
+        mock(CompletedTaskRepository.class),
+        new GitHubRateLimitGovernor(new SimpleMeterRegistry()));
+
+    cct.reconcileIfEmpty();
+    verify(rep).getPullRequests(GHIssueState.CLOSED);
+
+    cct.update(7, "roman", "exercise_1", true);
+    cct.reconcileIfEmpty();
+    verify(rep).getPullRequests(GHIssueState.CLOSED);
+  }
+
+  private static void connect(GitHubConnectService service, GHRepository rep) {
+    when(service.execute(any())).thenAnswer(invocation -> invocation
+        .<GitHubCall<?>>getArgument(0).call(rep));
+  }
+}
@@ -0,0 +1,42 @@
+package com.community.tools.service.github;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+
+class GitHookDataPartitionsTest {
+
+  @Test
+  void partitionCoversMonthInUtcAndTakesItsRowsFromDefault() {
+    assertEquals(Arrays.asList(
+        "CREATE TABLE public.\"GitHookData_2020_12\" "
+            + "(LIKE public.\"GitHookData\" INCLUDING DEFAULTS)",
+        "WITH moved AS (DELETE FROM public.\"GitHookData_default\" "
+            + "WHERE \"time\" >= '2020-12-01 00:00:00+00' "
+            + "AND \"time\" < '2021-01-01 00:00:00+00' "
+            + "RETURNING \"time\", \"event\", \"jsonb_data\") "
+            + "INSERT INTO public.\"GitHookData_2020_12\" (\"time\", \"event\", \"jsonb_data\") "
+            + "SELECT \"time\", \"event\", \"jsonb_data\" FROM moved",
+        "ALTER TABLE public.\"GitHookData\" ATTACH PARTITION public.\"GitHookData_2020_12\" "
+            + "FOR VALUES FROM ('2020-12-01 00:00:00+00') TO ('2021-01-01 00:00:00+00')"),
+        GitHookDataPartitions.createPartitionStatements(YearMonth.of(2020, 12)));
+  }
+
+  @Test
+  void onlyMonthlyPartitionsOlderThanRetentionExpire() {
+    assertEquals(Arrays.asList("GitHookData_2019_03", "GitHookData_2018_12"),
+        GitHookDataPartitions.expired(Arrays.asList("GitHookData_2019_03",
+            "GitHookData_2019_04", "GitHookData_default", "GitHookData_2018_12",
+            "GitHookData_2020_03"), YearMonth.of(2020, 3), 12));
+  }
+
+  @Test
+  void currentMonthIsKeptWithRetentionOfOneMonth() {
+    assertEquals(Collections.singletonList("GitHookData_2020_02"),
+        GitHookDataPartitions.expired(Arrays.asList("GitHookData_2020_02",
+            "GitHookData_2020_03", "GitHookData_2020_04"), YearMonth.of(2020, 3), 1));
+  }
+}
@@ -0,0 +1,85 @@
+package com.community.tools.service.github;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class GitHookDataWriterTest {
+
+  private JdbcTemplate jdbcTemplate;
+  private GitHookDataWriter writer;
+
+  @BeforeEach
+  void setUp() {
+    jdbcTemplate = mock(JdbcTemplate.class);
+    writer = new GitHookDataWriter(jdbcTemplate, new SimpleMeterRegistry());
+    ReflectionTestUtils.setField(writer, "batchSize", 2);
+    ReflectionTestUtils.setField(writer, "bufferCapacity", 10);
+    writer.init();
+  }
+
+  @AfterEach
+  void tearDown() {
+    writer.stop();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void flushInsertsBufferedPayloadsInBatches() {
+    ReflectionTestUtils.setField(writer, "batchSize", 3);
+    writer.write("push", "{\"n\": 1}");
+    writer.write("push", "{\"n\": 2}");
+    writer.write("push", "{\"n\": 3}");
+    writer.write("push", "{\"n\": 4}");
+    writer.flush();
+
+    ArgumentCaptor<List<Object[]>> batches = ArgumentCaptor.forClass(List.class);
+    verify(jdbcTemplate, times(2)).batchUpdate(anyString(), batches.capture());
+    assertEquals(4, batches.getAllValues().stream().mapToInt(List::size).sum());
+    assertEquals("{\"n\": 1}", batches.getAllValues().get(0).get(0)[2]);
+  }
+
+  @Test
+  void nothingIsInsertedUntilFlush() {
+    writer.write("push", "{}");
+
+    verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+  }
+
+  @Test
+  void burstQueuesOneFlushAtATime() {
+    ExecutorService busyWriter = mock(ExecutorService.class);
+    ReflectionTestUtils.setField(writer, "writer", busyWriter);
+    for (int i = 0; i < 10; i++) {
+      writer.write("push", "{}");
+    }
+
+    verify(busyWriter, times(1)).execute(any(Runnable.class));
+    ReflectionTestUtils.setField(writer, "writer", Executors.newSingleThreadExecutor());
+  }
+
+  @Test
+  void writeAfterStopIsFlushedByCaller() {
+    writer.stop();
+    writer.write("push", "{\"n\": 1}");
+    writer.write("push", "{\"n\": 2}");
+
+    verify(jdbcTemplate).batchUpdate(anyString(), anyList());
+  }
+}
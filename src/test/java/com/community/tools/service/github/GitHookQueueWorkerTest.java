@@ -0,0 +1,187 @@
+package com.community.tools.service.github;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.community.tools.service.StateMachineService;
+import com.community.tools.service.UserLaneExecutor;
+import com.community.tools.service.github.GitHookQueue.QueuedHook;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.sql.Timestamp;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class GitHookQueueWorkerTest {
+
+  private static final String OPENED = "{\"action\": \"opened\", "
+      + "\"pull_request\": {\"number\": 7, \"user\": {\"login\": \"roman\"}}}";
+
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final GitHookQueue queue = mock(GitHookQueue.class);
+  private final GitHubHookServlet hookServlet = mock(GitHubHookServlet.class);
+  private final GitHubEventStore eventStore = mock(GitHubEventStore.class);
+  private final AtomicInteger handled = new AtomicInteger();
+  private UserLaneExecutor userLanes;
+  private GitHookQueueWorker worker;
+
+  @BeforeEach
+  void setUp() {
+    userLanes = new UserLaneExecutor(meterRegistry);
+    ReflectionTestUtils.setField(userLanes, "laneCount", 1);
+    ReflectionTestUtils.setField(userLanes, "queueCapacity", 10);
+    userLanes.start();
+
+    StateMachineService stateMachineService = mock(StateMachineService.class);
+    when(stateMachineService.laneByNick("roman")).thenReturn("U-roman");
+    worker = new GitHookQueueWorker(queue, hookServlet, eventStore, userLanes,
+        stateMachineService, meterRegistry);
+    ReflectionTestUtils.setField(worker, "workers", 1);
+    ReflectionTestUtils.setField(worker, "maxAttempts", 3);
+    ReflectionTestUtils.setField(worker, "backoffMillis", 5000L);
+    ReflectionTestUtils.setField(worker, "maxBackoffMillis", 3_600_000L);
+    ReflectionTestUtils.setField(worker, "laneTimeoutMillis", 1000L);
+    ReflectionTestUtils.setField(worker, "leaseMillis", 60_000L);
+    worker.registerMetrics();
+  }
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    userLanes.stop();
+  }
+
+  @Test
+  void backoffDoublesUpToMax() {
+    assertEquals(5000, worker.backoff(0));
+    assertEquals(10_000, worker.backoff(1));
+    assertEquals(640_000, worker.backoff(7));
+    assertEquals(3_600_000, worker.backoff(10));
+    assertEquals(3_600_000, worker.backoff(100));
+  }
+
+  @Test
+  void handledWebhookIsCompletedThoughEventsFailToStore() {
+    routeTo(payload -> handled.incrementAndGet());
+    queue(hook(0));
+    doThrow(new DataAccessResourceFailureException("no table"))
+        .doThrow(new DateTimeParseException("bad time", "x", 0))
+        .when(eventStore).record(anyString(), any());
+
+    worker.drain(0);
+    queue(hook(0));
+    worker.drain(0);
+
+    assertEquals(2, handled.get());
+    verify(queue, times(2)).complete(1L);
+    verify(queue, never()).retry(anyLong(), anyLong(), anyString(), anyInt());
+    assertEquals(2, meterRegistry.counter("github.hook.queue.event.failures").count());
+  }
+
+  @Test
+  void failedWebhookIsRetriedWithBackoff() {
+    routeTo(payload -> {
+      throw new IllegalStateException("Slack is down");
+    });
+    queue(hook(1));
+
+    worker.drain(0);
+
+    verify(queue).retry(eq(1L), eq(10_000L), anyString(), eq(0));
+    verify(queue, never()).complete(anyLong());
+    verify(eventStore, never()).record(anyString(), any());
+  }
+
+  @Test
+  void lastFailedAttemptGoesToDeadLetters() {
+    routeTo(payload -> {
+      throw new IllegalStateException("Slack is down");
+    });
+    queue(hook(2));
+
+    worker.drain(0);
+
+    verify(queue).deadLetter(eq(1L), anyString());
+    verify(queue, never()).retry(anyLong(), anyLong(), anyString(), anyInt());
+    verify(eventStore).record(eq("pull_request"), any());
+  }
+
+  @Test
+  void handlersNotStartedBeforeLaneTimeoutNeverRun() throws InterruptedException {
+    ReflectionTestUtils.setField(worker, "laneTimeoutMillis", 50L);
+    routeTo(payload -> handled.incrementAndGet());
+    CountDownLatch busy = new CountDownLatch(1);
+    userLanes.execute("slack-user", () -> {
+      try {
+        busy.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    queue(hook(0));
+
+    worker.drain(0);
+    busy.countDown();
+    userLanes.stop();
+
+    assertEquals(0, handled.get());
+    verify(queue).retry(eq(1L), eq(5000L), anyString(), eq(0));
+  }
+
+  @Test
+  void retrySkipsHandlersWhichSucceeded() {
+    AtomicInteger notified = new AtomicInteger();
+    AtomicInteger failures = new AtomicInteger();
+    routeTo(payload -> notified.incrementAndGet(), payload -> {
+      if (failures.incrementAndGet() == 1) {
+        throw new IllegalStateException("no trainee");
+      }
+      handled.incrementAndGet();
+    });
+    queue(hook(0, 0));
+
+    worker.drain(0);
+    verify(queue).retry(eq(1L), eq(5000L), anyString(), eq(1));
+    queue(hook(1, 1));
+    worker.drain(0);
+
+    assertEquals(1, notified.get());
+    assertEquals(2, failures.get());
+    assertEquals(1, handled.get());
+    verify(queue).complete(1L);
+  }
+
+  private void routeTo(WebhookDispatchTable.Handler... handlers) {
+    when(hookServlet.findRoute("pull_request", "opened")).thenReturn(
+        new WebhookDispatchTable(meterRegistry).route("pull_request", "opened", handlers)
+            .find("pull_request", "opened"));
+  }
+
+  private void queue(QueuedHook hook) {
+    when(queue.claim(anyInt(), anyInt(), anyLong())).thenReturn(hook, (QueuedHook) null);
+  }
+
+  private static QueuedHook hook(int attempts) {
+    return hook(attempts, 0);
+  }
+
+  private static QueuedHook hook(int attempts, int handled) {
+    return new QueuedHook(1L, "pull_request", "delivery-1", "roman", OPENED, attempts, handled,
+        new Timestamp(System.currentTimeMillis()));
+  }
+}
@@ -0,0 +1,57 @@
+package com.community.tools.service.github;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.community.tools.service.github.GitHookReplayService.Mode;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Date;
+import org.junit.jupiter.api.Test;
+
+class GitHookReplayServiceTest {
+
+  @Test
+  void eventOfStoredPullRequestWebhooks() throws IOException {
+    assertEquals("pull_request", eventOf("{\"action\": \"closed\", "
+        + "\"pull_request\": {\"user\": {\"login\": \"roman\"}}}"));
+    assertEquals("pull_request_review", eventOf("{\"action\": \"submitted\", "
+        + "\"review\": {\"user\": {\"login\": \"mentor\"}}, "
+        + "\"pull_request\": {\"user\": {\"login\": \"roman\"}}}"));
+    assertEquals("pull_request_review_comment", eventOf("{\"action\": \"created\", "
+        + "\"comment\": {\"user\": {\"login\": \"mentor\"}}, "
+        + "\"pull_request\": {\"user\": {\"login\": \"roman\"}}}"));
+  }
+
+  @Test
+  void eventOfStoredIssueComment() throws IOException {
+    assertEquals("issue_comment", eventOf("{\"action\": \"created\", "
+        + "\"comment\": {\"user\": {\"login\": \"mentor\"}}, "
+        + "\"issue\": {\"user\": {\"login\": \"roman\"}}}"));
+  }
+
+  @Test
+  void pushHasNoHandlers() throws IOException {
+    assertNull(eventOf("{\"ref\": \"refs/heads/master\", \"commits\": [], "
+        + "\"sender\": {\"login\": \"roman\"}}"));
+  }
+
+  @Test
+  void handlersWhichAreNotReplayableAreRejected() {
+    GitHookReplayService replayService = new GitHookReplayService(null, null, null, null,
+        null, null);
+    Date now = new Date();
+
+    assertThrows(IllegalArgumentException.class, () -> replayService.replay(now, now,
+        Mode.APPLY, Collections.singleton("giveNewTask")));
+    assertThrows(IllegalArgumentException.class, () -> replayService.replay(now, now,
+        Mode.APPLY, Collections.emptySet()));
+  }
+
+  private static String eventOf(String json) throws IOException {
+    return GitHookReplayService.eventOf(
+        GitHubWebhookPayload.parse(json.getBytes(StandardCharsets.UTF_8)));
+  }
+}
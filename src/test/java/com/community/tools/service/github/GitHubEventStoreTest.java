@@ -0,0 +1,103 @@
+package com.community.tools.service.github;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.community.tools.model.Event;
+import com.community.tools.model.EventData;
+import com.community.tools.service.github.GitHubEventStore.PushedCommits;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class GitHubEventStoreTest {
+
+  private static final PushedCommits NO_COMMITS = (before, after) -> Collections.emptyList();
+
+  @Test
+  void openedPullRequestIsCreatedByAuthor() throws IOException {
+    GitHubWebhookPayload payload = payload("{\"action\": \"opened\", \"pull_request\": "
+        + "{\"created_at\": \"2020-03-02T10:00:00Z\", \"user\": {\"login\": \"roman\"}}}");
+
+    List<EventData> events = GitHubEventStore.eventsOf("pull_request", payload, NO_COMMITS);
+
+    assertEquals(1, events.size());
+    assertEquals(new EventData(Date.from(Instant.parse("2020-03-02T10:00:00Z")), "roman",
+        Event.PULL_REQUEST_CREATED), events.get(0));
+  }
+
+  @Test
+  void reviewCommentIsMadeByItsUser() throws IOException {
+    GitHubWebhookPayload payload = payload("{\"action\": \"created\", \"comment\": "
+        + "{\"created_at\": \"2020-03-02T10:00:00Z\", \"user\": {\"login\": \"mentor\"}}}");
+
+    List<EventData> events = GitHubEventStore.eventsOf("pull_request_review_comment", payload,
+        NO_COMMITS);
+
+    assertEquals("mentor", events.get(0).getActorLogin());
+    assertEquals(Event.COMMENT, events.get(0).getType());
+  }
+
+  @Test
+  void everyCommitOfSynchronizeIsCommitOfPullRequestAuthor() throws IOException {
+    GitHubWebhookPayload payload = payload("{\"action\": \"synchronize\", "
+        + "\"before\": \"aaa\", \"after\": \"bbb\", \"sender\": {\"login\": \"mentor\"}, "
+        + "\"pull_request\": {\"user\": {\"login\": \"roman\"}}}");
+    Date first = Date.from(Instant.parse("2020-03-02T08:00:00Z"));
+    Date second = Date.from(Instant.parse("2020-03-02T09:00:00Z"));
+
+    List<EventData> events = GitHubEventStore.eventsOf("pull_request", payload,
+        (before, after) -> "aaa".equals(before) && "bbb".equals(after)
+            ? Arrays.asList(first, second) : Collections.emptyList());
+
+    assertEquals(Arrays.asList(new EventData(first, "roman", Event.COMMIT),
+        new EventData(second, "roman", Event.COMMIT)), events);
+  }
+
+  @Test
+  void mergeToDefaultBranchIsNotCreditedToWhoMerged() throws IOException {
+    GitHubWebhookPayload payload = payload("{\"ref\": \"refs/heads/master\", "
+        + "\"sender\": {\"login\": \"mentor\"}, \"commits\": ["
+        + "{\"timestamp\": \"2020-03-02T10:00:00+02:00\", \"author\": {\"username\": \"roman\"}},"
+        + "{\"timestamp\": \"2020-03-02T11:00:00+02:00\", "
+        + "\"author\": {\"username\": \"roman\"}}]}");
+
+    assertTrue(GitHubEventStore.eventsOf("push", payload, NO_COMMITS).isEmpty());
+  }
+
+  @Test
+  void pushToPullRequestBranchIsCountedOnceBySynchronize() throws IOException {
+    GitHubWebhookPayload push = payload("{\"ref\": \"refs/heads/task-1\", "
+        + "\"before\": \"aaa\", \"after\": \"bbb\", \"sender\": {\"login\": \"roman\"}, "
+        + "\"commits\": [{\"timestamp\": \"2020-03-02T10:00:00+02:00\"}]}");
+    GitHubWebhookPayload synchronize = payload("{\"action\": \"synchronize\", "
+        + "\"before\": \"aaa\", \"after\": \"bbb\", "
+        + "\"pull_request\": {\"user\": {\"login\": \"roman\"}}}");
+    PushedCommits oneCommit = (before, after) ->
+        Collections.singletonList(Date.from(Instant.parse("2020-03-02T08:00:00Z")));
+
+    List<EventData> events = new ArrayList<>(
+        GitHubEventStore.eventsOf("push", push, oneCommit));
+    events.addAll(GitHubEventStore.eventsOf("pull_request", synchronize, oneCommit));
+
+    assertEquals(1, events.size());
+  }
+
+  @Test
+  void otherWebhooksHaveNoEvents() throws IOException {
+    GitHubWebhookPayload payload = payload("{\"action\": \"labeled\", \"pull_request\": "
+        + "{\"user\": {\"login\": \"roman\"}}}");
+
+    assertTrue(GitHubEventStore.eventsOf("pull_request", payload, NO_COMMITS).isEmpty());
+  }
+
+  private static GitHubWebhookPayload payload(String json) throws IOException {
+    return GitHubWebhookPayload.parse(json.getBytes(StandardCharsets.UTF_8));
+  }
+}
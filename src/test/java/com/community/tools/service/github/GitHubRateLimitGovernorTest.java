@@ -0,0 +1,52 @@
+package com.community.tools.service.github;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class GitHubRateLimitGovernorTest {
+
+  private static final long NOW = 1_000_000L;
+  private static final long RESET = NOW + 600_000L;
+
+  private GitHubRateLimitGovernor governor;
+
+  @BeforeEach
+  void setUp() {
+    governor = new GitHubRateLimitGovernor(new SimpleMeterRegistry());
+    ReflectionTestUtils.setField(governor, "interactiveReserve", 500);
+  }
+
+  @Test
+  void batchGoesAtFullSpeedWhileHalfOfBudgetIsLeft() {
+    governor.observe(5000, 3000, RESET);
+
+    assertEquals(0, governor.batchDelay(NOW));
+  }
+
+  @Test
+  void batchIsSpreadUntilResetWhenBudgetRunsOut() {
+    governor.observe(5000, 1100, RESET);
+
+    assertEquals(1000, governor.batchDelay(NOW));
+  }
+
+  @Test
+  void batchWaitsForResetWhenOnlyReserveIsLeft() {
+    governor.observe(5000, 400, RESET);
+
+    assertEquals(600_000L, governor.batchDelay(NOW));
+    assertEquals(0, governor.batchDelay(RESET));
+  }
+
+  @Test
+  void lateResponseDoesNotRaiseBudget() {
+    governor.observe(5000, 400, RESET);
+    governor.observe(5000, 4000, RESET);
+
+    assertEquals(400.0, governor.getRemaining());
+  }
+}
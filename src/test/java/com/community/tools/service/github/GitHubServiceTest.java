@@ -0,0 +1,48 @@
+package com.community.tools.service.github;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.community.tools.service.github.GitHubConnectService.GitHubCall;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.kohsuke.github.GHIssueState;
+import org.kohsuke.github.GHPullRequest;
+import org.kohsuke.github.GHRepository;
+import org.kohsuke.github.GHUser;
+
+class GitHubServiceTest {
+
+  @Test
+  void everyPullRequestOfUserIsReturned() throws IOException {
+    GHRepository repository = mock(GHRepository.class);
+    List<GHPullRequest> pulls = Arrays.asList(pull("roman", "exercise_1"),
+        pull("roman", "exercise_2"));
+    when(repository.getPullRequests(GHIssueState.OPEN)).thenReturn(pulls);
+    GitHubConnectService connectService = mock(GitHubConnectService.class);
+    when(connectService.execute(any())).thenAnswer(invocation -> invocation
+        .<GitHubCall<?>>getArgument(0).call(repository));
+    GitHubService gitHubService = new GitHubService(connectService,
+        mock(GitHubEventStore.class), mock(GitHubFetchEngine.class));
+
+    Map<String, List<String>> pullRequests = gitHubService.getPullRequests(true);
+
+    assertEquals(Collections.singletonMap("roman", Arrays.asList("exercise_1", "exercise_2")),
+        pullRequests);
+  }
+
+  private static GHPullRequest pull(String login, String title) throws IOException {
+    GHUser user = mock(GHUser.class);
+    when(user.getLogin()).thenReturn(login);
+    GHPullRequest pull = mock(GHPullRequest.class);
+    when(pull.getUser()).thenReturn(user);
+    when(pull.getTitle()).thenReturn(title);
+    return pull;
+  }
+}
@@ -0,0 +1,103 @@
+package com.community.tools.service.github;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.community.tools.service.github.GitHubWebhookPayload.PullRequest;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+class GitHubWebhookPayloadTest {
+
+  private static final int WARM_UP = 300;
+  private static final int ITERATIONS = 1000;
+
+  @Test
+  void extractsUsedFieldsOfPullRequest() throws IOException {
+    GitHubWebhookPayload payload = GitHubWebhookPayload.parse(pullRequestOpened());
+
+    assertEquals("opened", payload.getAction());
+    assertEquals("roman", payload.getSenderLogin());
+    assertEquals("roman", payload.getTrainee());
+    PullRequest pull = payload.getPullRequest();
+    assertEquals(42, pull.getNumber());
+    assertEquals("roman", pull.getAuthor());
+    assertEquals("Task 2: collections", pull.getTitle());
+    assertEquals("https://github.com/Broscorp-net/traineeship/pull/42", pull.getHtmlUrl());
+    assertEquals(Arrays.asList("ready for review", "task_2"), pull.getLabels());
+    assertEquals("2020-03-02T10:00:00Z", pull.getCreatedAt());
+    assertNull(pull.getClosedAt());
+  }
+
+  @Test
+  void extractsAuthorsOfCommentAndIssue() throws IOException {
+    GitHubWebhookPayload payload = GitHubWebhookPayload.parse(("{\"action\": \"created\", "
+        + "\"issue\": {\"labels\": null, \"user\": {\"login\": \"roman\"}}, \"comment\": "
+        + "{\"user\": {\"login\": \"mentor\"}, \"created_at\": \"2020-03-02T10:00:00Z\"}, "
+        + "\"sender\": {\"login\": \"mentor\"}}").getBytes(StandardCharsets.UTF_8));
+
+    assertEquals("roman", payload.getIssueAuthor());
+    assertEquals("roman", payload.getTrainee());
+    assertEquals("mentor", payload.getCommentAuthor());
+    assertEquals("2020-03-02T10:00:00Z", payload.getCommentCreatedAt());
+    assertNull(payload.getPullRequest());
+  }
+
+  /**
+   * Allocation benchmark of the webhook path: org.json tree and its copy for storage
+   * against the streaming extraction and the raw body for storage.
+   */
+  @Test
+  void streamingAllocatesLessThanTree() throws IOException {
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+    assumeTrue(threads.isThreadAllocatedMemorySupported());
+    byte[] body = pullRequestOpened();
+
+    long tree = allocatedPerCall(threads, () -> {
+      JSONObject json = new JSONObject(new String(body, StandardCharsets.UTF_8));
+      return json.toString().length() + json.getString("action").length();
+    });
+    long streaming = allocatedPerCall(threads, () -> {
+      GitHubWebhookPayload payload = GitHubWebhookPayload.parse(body);
+      return new String(body, StandardCharsets.UTF_8).length() + payload.getAction().length();
+    });
+
+    assertTrue(streaming * 2 < tree,
+        "streaming allocates " + streaming + " bytes per webhook, tree " + tree);
+  }
+
+  private static long allocatedPerCall(com.sun.management.ThreadMXBean threads, WebhookPath path)
+      throws IOException {
+    long id = Thread.currentThread().getId();
+    long sink = 0;
+    for (int i = 0; i < WARM_UP; i++) {
+      sink += path.run();
+    }
+    long before = threads.getThreadAllocatedBytes(id);
+    for (int i = 0; i < ITERATIONS; i++) {
+      sink += path.run();
+    }
+    long allocated = threads.getThreadAllocatedBytes(id) - before;
+    assertTrue(sink > 0);
+    return allocated / ITERATIONS;
+  }
+
+  private static byte[] pullRequestOpened() throws IOException {
+    return Files.readAllBytes(Paths.get("src/test/resources/github/pull_request_opened.json"));
+  }
+
+  @FunctionalInterface
+  private interface WebhookPath {
+    int run() throws IOException;
+  }
+}
@@ -0,0 +1,55 @@
+package com.community.tools.service.github;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+class PullRequestPageTest {
+
+  @Test
+  void copiesNumberAuthorTitleAndLabels() throws IOException {
+    String github = "[{\"url\": \"u\", \"number\": 7, \"head\": {\"user\": {\"login\": \"x\"}},"
+        + "\"title\": \"Task 1\", \"user\": {\"login\": \"roman\", \"id\": 1},"
+        + "\"labels\": [{\"id\": 2, \"name\": \"done\"}, {\"name\": \"review\"}]},"
+        + "{\"number\": 8, \"title\": \"Task 2\", \"user\": null, \"labels\": []}]";
+
+    JSONObject page = transfer(github, "3");
+
+    JSONArray items = page.getJSONArray("items");
+    assertEquals(2, items.length());
+    JSONObject first = items.getJSONObject(0);
+    assertEquals(7, first.getInt("number"));
+    assertEquals("roman", first.getString("author"));
+    assertEquals("Task 1", first.getString("title"));
+    assertEquals("[\"done\",\"review\"]", first.getJSONArray("labels").toString());
+    assertEquals(JSONObject.NULL, items.getJSONObject(1).get("author"));
+    assertEquals("3", page.getString("nextCursor"));
+  }
+
+  @Test
+  void lastPageHasNoNextCursor() throws IOException {
+    JSONObject page = transfer("[]", null);
+
+    assertEquals(0, page.getJSONArray("items").length());
+    assertEquals(JSONObject.NULL, page.get("nextCursor"));
+  }
+
+  @Test
+  void rejectsResponseWithoutList() {
+    assertThrows(IOException.class, () -> transfer("{\"message\": \"Not Found\"}", null));
+  }
+
+  private static JSONObject transfer(String github, String nextCursor) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    PullRequestPage.transfer(new ByteArrayInputStream(github.getBytes(StandardCharsets.UTF_8)),
+        out, nextCursor);
+    return new JSONObject(new String(out.toByteArray(), StandardCharsets.UTF_8));
+  }
+}
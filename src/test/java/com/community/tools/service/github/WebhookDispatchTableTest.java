@@ -0,0 +1,81 @@
+package com.community.tools.service.github;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class WebhookDispatchTableTest {
+
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @Test
+  void routesByEventAndAction() throws IOException {
+    List<String> handled = new ArrayList<>();
+    WebhookDispatchTable table = new WebhookDispatchTable(meterRegistry)
+        .route("pull_request", "opened", json -> handled.add("notify"), json -> handled.add("task"))
+        .route("pull_request", "closed", json -> handled.add("done"));
+
+    table.find("pull_request", "opened")
+        .handle(GitHubWebhookPayload.parse("{}".getBytes(StandardCharsets.UTF_8)));
+
+    assertEquals(2, handled.size());
+    assertEquals("task", handled.get(1));
+    assertNull(table.find("pull_request", "synchronize"));
+    assertEquals(1, meterRegistry.timer("github.webhook.route", "route", "pull_request:opened")
+        .count());
+  }
+
+  @Test
+  void unroutedEventsAreCounted() {
+    WebhookDispatchTable table = new WebhookDispatchTable(meterRegistry)
+        .route("pull_request", "opened", json -> { })
+        .accept("push");
+
+    assertTrue(table.accepts("pull_request"));
+    assertTrue(table.accepts("push"));
+    assertFalse(table.accepts("star"));
+    assertFalse(table.accepts(null));
+    assertEquals(1, meterRegistry.counter("github.webhook.unrouted", "event", "star").count());
+  }
+
+  @Test
+  void routeIsAddedOnce() {
+    WebhookDispatchTable table = new WebhookDispatchTable(meterRegistry)
+        .route("pull_request", "opened", json -> { });
+
+    assertThrows(IllegalStateException.class,
+        () -> table.route("pull_request", "opened", json -> { }));
+  }
+
+  @Test
+  void onlyNamedHandlersAreSelected() throws IOException {
+    List<String> handled = new ArrayList<>();
+    WebhookDispatchTable table = new WebhookDispatchTable(meterRegistry)
+        .route("pull_request", "opened", json -> handled.add("task"),
+            WebhookDispatchTable.named("done", json -> handled.add("done")))
+        .route("pull_request", "reopened", json -> handled.add("task"));
+
+    Timer replayTimer = meterRegistry.timer("github.webhook.replay");
+    table.find("pull_request", "opened").only(Collections.singleton("done"), replayTimer)
+        .handle(GitHubWebhookPayload.parse("{}".getBytes(StandardCharsets.UTF_8)));
+
+    assertEquals(Collections.singletonList("done"), handled);
+    assertEquals(1, replayTimer.count());
+    assertEquals(0, meterRegistry.timer("github.webhook.route", "route", "pull_request:opened")
+        .count());
+    assertNull(table.find("pull_request", "reopened")
+        .only(Collections.singleton("done"), replayTimer));
+  }
+}
@@ -0,0 +1,54 @@
+package com.community.tools.service.slack;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.community.tools.service.slack.MessageTemplate.Placeholder;
+import java.util.EnumMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class MessageTemplateTest {
+
+  @Test
+  void rendersTemplateWithoutPlaceholdersAsIs() {
+    String json = "[{\"type\": \"divider\"}]";
+
+    assertEquals(json, MessageTemplate.compile("divider", json).render());
+  }
+
+  @Test
+  void fillsAndEscapesPlaceholders() {
+    Map<Placeholder, String> values = new EnumMap<>(Placeholder.class);
+    values.put(Placeholder.USER, "U123");
+    values.put(Placeholder.URL, "https://github.com");
+    values.put(Placeholder.TASK, "say \"hi\"");
+
+    MessageTemplate template = MessageTemplate.compile("next",
+        "[{\"type\": \"section\",\"text\": {\"type\": \"mrkdwn\","
+            + "\"text\": \"{{user}}, <{{url}}/{{task}}|TASK>\"}}]");
+
+    assertEquals("[{\"type\": \"section\",\"text\": {\"type\": \"mrkdwn\","
+        + "\"text\": \"<@U123>, <https://github.com/say \\\"hi\\\"|TASK>\"}}]",
+        template.render(values));
+  }
+
+  @Test
+  void rejectsInvalidJson() {
+    assertThrows(IllegalArgumentException.class,
+        () -> MessageTemplate.compile("broken", "[{\"type\": \"divider\""));
+  }
+
+  @Test
+  void rejectsUnknownPlaceholder() {
+    assertThrows(IllegalArgumentException.class,
+        () -> MessageTemplate.compile("unknown", "[{\"text\": \"{{mentor}}\"}]"));
+  }
+
+  @Test
+  void rejectsMissingValue() {
+    MessageTemplate template = MessageTemplate.compile("task", "[{\"text\": \"{{task}}\"}]");
+
+    assertThrows(IllegalArgumentException.class, template::render);
+  }
+}
@@ -0,0 +1,17 @@
+package com.community.tools.service.slack;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import okhttp3.HttpUrl;
+import org.junit.jupiter.api.Test;
+
+class SlackClientConfigTest {
+
+  @Test
+  void tagsApiMethodAndHidesWebhookToken() {
+    assertEquals("chat.postMessage", SlackClientConfig.methodOf(
+        HttpUrl.get("https://slack.com/api/chat.postMessage").pathSegments()));
+    assertEquals("webhook", SlackClientConfig.methodOf(
+        HttpUrl.get("https://hooks.slack.com/services/T000/B000/secretToken").pathSegments()));
+  }
+}
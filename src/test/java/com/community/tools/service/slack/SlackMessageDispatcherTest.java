@@ -0,0 +1,65 @@
+package com.community.tools.service.slack;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class SlackMessageDispatcherTest {
+
+  @Test
+  void retriesOnlyFailuresBeforeRequestWasSent() {
+    assertTrue(SlackMessageDispatcher.notSent(new ConnectException("refused")));
+    assertTrue(SlackMessageDispatcher.notSent(new UnknownHostException("slack.com")));
+    assertTrue(SlackMessageDispatcher.notSent(
+        new IOException(new ConnectException("refused"))));
+
+    assertFalse(SlackMessageDispatcher.notSent(new SocketTimeoutException("timeout")));
+    assertFalse(SlackMessageDispatcher.notSent(new IOException("unexpected end of stream")));
+  }
+
+  @Test
+  void lanesAreRemovedWhenDrained() throws Exception {
+    SlackMessageDispatcher dispatcher = new SlackMessageDispatcher();
+    ReflectionTestUtils.setField(dispatcher, "threads", 2);
+    ReflectionTestUtils.setField(dispatcher, "channelIntervalMillis", 20L);
+    ReflectionTestUtils.setField(dispatcher, "maxAttempts", 3);
+    ReflectionTestUtils.setField(dispatcher, "backoffMillis", 10L);
+    ReflectionTestUtils.setField(dispatcher, "methodLimits", Collections.emptyMap());
+    ReflectionTestUtils.setField(dispatcher, "defaultMethodLimit", 1000);
+    dispatcher.start();
+    try {
+      List<String> sent = Collections.synchronizedList(new ArrayList<>());
+      for (int i = 0; i < 3; i++) {
+        String text = "message " + i;
+        dispatcher.submit("chat.postMessage", "U" + i % 2, () -> {
+          sent.add(text);
+          return "ts";
+        }).get(5, TimeUnit.SECONDS);
+      }
+      Map<?, ?> lanes = (Map<?, ?>) ReflectionTestUtils.getField(dispatcher, "lanes");
+      long deadline = System.currentTimeMillis() + 5000;
+      while (!lanes.isEmpty() && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+
+      assertEquals(3, sent.size());
+      assertTrue(lanes.isEmpty());
+      assertEquals("ts", dispatcher.submit("chat.postMessage", "U0", () -> "ts")
+          .get(5, TimeUnit.SECONDS));
+    } finally {
+      dispatcher.stop();
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package com.community.tools.service.slack;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.github.seratch.jslack.api.RequestConfigurator;
+import com.github.seratch.jslack.api.methods.MethodsClient;
+import com.github.seratch.jslack.api.methods.SlackApiException;
+import com.github.seratch.jslack.api.methods.response.users.UsersListResponse;
+import com.github.seratch.jslack.api.model.User;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class SlackUserDirectoryTest {
+
+  private final MethodsClient slackMethods = mock(MethodsClient.class);
+  private final SlackUserDirectory directory = new SlackUserDirectory(slackMethods);
+
+  SlackUserDirectoryTest() {
+    ReflectionTestUtils.setField(directory, "pageSize", 200);
+    ReflectionTestUtils.setField(directory, "missRefreshMillis", Long.MAX_VALUE);
+  }
+
+  @Test
+  void deltaDuringReloadIsKept() throws IOException, SlackApiException {
+    when(slackMethods.usersList(any(RequestConfigurator.class))).thenAnswer(invocation -> {
+      directory.upsert(user("U1", "Roman Renamed"));
+      return page(user("U1", "Roman"));
+    });
+
+    assertEquals("Roman Renamed", directory.findById("U1").get().getRealName());
+  }
+
+  @Test
+  void rateLimitedPageIsFetchedAgain() throws IOException, SlackApiException {
+    Response limited = new Response.Builder()
+        .request(new Request.Builder().url("https://slack.com/api/users.list").build())
+        .protocol(Protocol.HTTP_1_1).code(429).message("Too Many Requests")
+        .header("Retry-After", "0").build();
+    when(slackMethods.usersList(any(RequestConfigurator.class)))
+        .thenThrow(new SlackApiException(limited, "{\"ok\":false,\"error\":\"ratelimited\"}"))
+        .thenReturn(page(user("U1", "Roman")));
+
+    assertEquals("Roman", directory.findById("U1").get().getRealName());
+  }
+
+  private static UsersListResponse page(User... users) {
+    UsersListResponse response = new UsersListResponse();
+    response.setOk(true);
+    response.setMembers(new ArrayList<>(Arrays.asList(users)));
+    return response;
+  }
+
+  private static User user(String id, String realName) {
+    User user = new User();
+    user.setId(id);
+    user.setRealName(realName);
+    return user;
+  }
+}
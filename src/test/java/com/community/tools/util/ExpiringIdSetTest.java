@@ -0,0 +1,40 @@
+package com.community.tools.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class ExpiringIdSetTest {
+
+  @Test
+  void rejectsIdSeenWithinTtl() {
+    ExpiringIdSet ids = new ExpiringIdSet(10, 1000);
+
+    assertTrue(ids.add("Ev1", 0));
+    assertFalse(ids.add("Ev1", 999));
+    assertTrue(ids.add("Ev2", 999));
+  }
+
+  @Test
+  void forgetsIdAfterTtl() {
+    ExpiringIdSet ids = new ExpiringIdSet(10, 1000);
+    ids.add("Ev1", 0);
+
+    assertTrue(ids.add("Ev1", 1000));
+    assertEquals(1, ids.size());
+  }
+
+  @Test
+  void forgetsEldestIdWhenFull() {
+    ExpiringIdSet ids = new ExpiringIdSet(2, 1000);
+    ids.add("Ev1", 0);
+    ids.add("Ev2", 1);
+    ids.add("Ev3", 2);
+
+    assertEquals(2, ids.size());
+    assertTrue(ids.add("Ev1", 3));
+    assertFalse(ids.add("Ev3", 4));
+  }
+}
@@ -0,0 +1,47 @@
+package com.community.tools.util;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class GithubAuthCheckerTest {
+
+  private static final byte[] PAYLOAD =
+      "{\"action\": \"opened\"}\n".getBytes(StandardCharsets.UTF_8);
+
+  private GithubAuthChecker checker;
+
+  @BeforeEach
+  void setUp() throws GeneralSecurityException {
+    checker = new GithubAuthChecker("secret");
+  }
+
+  @Test
+  void acceptsSha256Signature() {
+    assertTrue(checker.checkSignature(
+        "sha256=a237cd26cf5fb2cad42d4635015acbfb60a27b273c19aa2afd8be0f0c7e07ebd", PAYLOAD));
+  }
+
+  @Test
+  void acceptsSha1SignatureOfRawBytes() {
+    assertTrue(checker.checkSignature("sha1=c870c6279144f02cc410085c177ff53692a8792a",
+        PAYLOAD));
+    assertTrue(checker.checkSignature("sha1=c870c6279144f02cc410085c177ff53692a8792a",
+        "{\"action\": \"opened\"}\n"));
+  }
+
+  @Test
+  void rejectsWrongOrMalformedSignature() {
+    assertFalse(checker.checkSignature("sha1=c870c6279144f02cc410085c177ff53692a8792b",
+        PAYLOAD));
+    assertFalse(checker.checkSignature("sha256=c870c6279144f02cc410085c177ff53692a8792a",
+        PAYLOAD));
+    assertFalse(checker.checkSignature("sha1=not hex", PAYLOAD));
+    assertFalse(checker.checkSignature("md5=c870c6279144f02cc410085c177ff536", PAYLOAD));
+    assertFalse(checker.checkSignature(null, PAYLOAD));
+  }
+}
@@ -0,0 +1,89 @@
+package com.community.tools.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.env.MockEnvironment;
+
+class IdDeduplicatorTest {
+
+  private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private IdDeduplicator deduplicator;
+
+  @BeforeEach
+  void setUp() {
+    MockEnvironment environment = new MockEnvironment()
+        .withProperty("test.dedup.jdbc.enabled", "true")
+        .withProperty("test.dedup.ttl.millis", "60000")
+        .withProperty("test.dedup.max.size", "100");
+    deduplicator = new IdDeduplicator(jdbcTemplate, meterRegistry, environment,
+        "TestId", "test_id", "test.dedup", "test.duplicates");
+  }
+
+  @Test
+  void firstDeliveryIsStored() {
+    when(jdbcTemplate.update(startsWith("INSERT"), eq("id-1"))).thenReturn(1);
+
+    assertTrue(deduplicator.firstDelivery("id-1"));
+    verify(jdbcTemplate).update(startsWith("INSERT INTO public.\"TestId\" (\"test_id\""),
+        eq("id-1"));
+    assertEquals(0, meterRegistry.counter("test.duplicates").count());
+  }
+
+  @Test
+  void duplicateIsCaughtInMemory() {
+    when(jdbcTemplate.update(startsWith("INSERT"), eq("id-1"))).thenReturn(1);
+
+    assertTrue(deduplicator.firstDelivery("id-1"));
+    assertFalse(deduplicator.firstDelivery("id-1"));
+    verify(jdbcTemplate, times(1)).update(startsWith("INSERT"), eq("id-1"));
+    assertEquals(1, meterRegistry.counter("test.duplicates").count());
+  }
+
+  @Test
+  void duplicateIsCaughtInTable() {
+    when(jdbcTemplate.update(startsWith("INSERT"), eq("id-1"))).thenReturn(0);
+
+    assertFalse(deduplicator.firstDelivery("id-1"));
+    assertEquals(1, meterRegistry.counter("test.duplicates").count());
+  }
+
+  @Test
+  void forgottenIdIsDeliveredAgain() {
+    when(jdbcTemplate.update(startsWith("INSERT"), eq("id-1"))).thenReturn(1);
+
+    assertTrue(deduplicator.firstDelivery("id-1"));
+    deduplicator.forget("id-1");
+    assertTrue(deduplicator.firstDelivery("id-1"));
+
+    verify(jdbcTemplate).update(startsWith("DELETE FROM public.\"TestId\" WHERE \"test_id\""),
+        eq("id-1"));
+    assertEquals(0, meterRegistry.counter("test.duplicates").count());
+  }
+
+  @Test
+  void tableFailureFallsBackToMemory() {
+    when(jdbcTemplate.update(anyString(), eq("id-1")))
+        .thenThrow(new DataAccessResourceFailureException("no table"));
+
+    assertTrue(deduplicator.firstDelivery("id-1"));
+    assertFalse(deduplicator.firstDelivery("id-1"));
+    deduplicator.forget("id-1");
+    assertTrue(deduplicator.firstDelivery("id-1"));
+  }
+}
@@ -0,0 +1,39 @@
+package com.community.tools.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class TokenBucketTest {
+
+  @Test
+  void givesOutWholeCapacityAsBurst() {
+    TokenBucket bucket = new TokenBucket(3, 3000);
+
+    assertEquals(0, bucket.tryAcquire(1000));
+    assertEquals(0, bucket.tryAcquire(1000));
+    assertEquals(0, bucket.tryAcquire(1000));
+    assertEquals(1000, bucket.tryAcquire(1000));
+  }
+
+  @Test
+  void refillsWithTime() {
+    TokenBucket bucket = new TokenBucket(1, 1000);
+
+    assertEquals(0, bucket.tryAcquire(1000));
+    assertTrue(bucket.tryAcquire(1500) > 0);
+    assertEquals(0, bucket.tryAcquire(2000));
+  }
+
+  @Test
+  void waitsUntilPauseIsOver() {
+    TokenBucket bucket = new TokenBucket(10, 1000);
+    bucket.tryAcquire(1000);
+
+    bucket.pauseUntil(5000);
+
+    assertEquals(3000, bucket.tryAcquire(2000));
+    assertEquals(0, bucket.tryAcquire(5100));
+  }
+}